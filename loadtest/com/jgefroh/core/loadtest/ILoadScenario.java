@@ -0,0 +1,40 @@
+package com.jgefroh.core.loadtest;
+
+import com.jgefroh.core.Core;
+
+
+/**
+ * The interface for a scenario run by {@link LoadTest}.
+ * 
+ * <p>
+ * A scenario builds a world whose size depends on a scale, then applies a
+ * steady load every tick, e.g. spawning and removing entities or sending
+ * messages. {@code LoadTest} ramps the scale and measures each level.
+ * </p>
+ * 
+ * @see		LoadTest
+ * @see		LoadScenarios
+ */
+public interface ILoadScenario {
+
+    /**
+     * Gets the name the scenario is reported under.
+     * @return  the name of the scenario
+     */
+    public String getName();
+
+    /**
+     * Builds the world for the passed scale.
+     * @param core  a new Core to build the world in
+     * @param scale the level of load to build for
+     */
+    public void setUp(final Core core, final int scale);
+
+    /**
+     * Applies the load for one tick, before {@code Core} works.
+     * @param core  the Core running the scenario
+     * @param scale the level of load being measured
+     * @param tick  the number of the tick, starting at 0
+     */
+    public void step(final Core core, final int scale, final long tick);
+}
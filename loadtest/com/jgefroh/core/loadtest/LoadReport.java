@@ -0,0 +1,221 @@
+package com.jgefroh.core.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The measurements of a {@link LoadTest} run, with pass/fail results.
+ * @see LoadTest
+ */
+public class LoadReport {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The measurements of each scenario at each scale, in the order they were run.*/
+    private final List<Measurement> measurements = new ArrayList<Measurement>();
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    public List<Measurement> getMeasurements() {
+        return Collections.unmodifiableList(measurements);
+    }
+
+    /**
+     * Checks to see if every measurement met the thresholds.
+     * @return  true if all measurements met the thresholds; false otherwise
+     */
+    public boolean isPassed() {
+        for (Measurement each : measurements) {
+            if (!each.isPassed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    void add(final Measurement measurement) {
+        measurements.add(measurement);
+    }
+
+    /**
+     * Writes the report as JSON.
+     * @return  the report as a JSON document
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"passed\":").append(isPassed()).append(",\"measurements\":[");
+
+        for (int i = 0; i < measurements.size(); i++) {
+            Measurement each = measurements.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\n{\"scenario\":\"").append(escape(each.scenario)).append('"')
+                .append(",\"scale\":").append(each.scale)
+                .append(",\"ticks\":").append(each.ticks)
+                .append(",\"p50Nanos\":").append(each.p50)
+                .append(",\"p99Nanos\":").append(each.p99)
+                .append(",\"p999Nanos\":").append(each.p999)
+                .append(",\"maxNanos\":").append(each.max)
+                .append(",\"allocatedBytesPerTick\":").append(each.allocatedPerTick)
+                .append(",\"heapUsedBytes\":").append(each.heapUsed)
+                .append(",\"passed\":").append(each.isPassed())
+                .append(",\"failures\":[");
+
+            for (int j = 0; j < each.failures.size(); j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(escape(each.failures.get(j))).append('"');
+            }
+            json.append("]}");
+        }
+        return json.append("\n]}").toString();
+    }
+
+
+    /**
+     * Escapes the passed text for use in a JSON string.
+     * @param text  the text to escape
+     * @return      the escaped text, without quotes
+     */
+    private static String escape(final String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    escaped.append("\\\"");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        escaped.append(c);
+                    }
+            }
+        }
+        return escaped.toString();
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    /**
+     * The measurements of a single scenario at a single scale.
+     */
+    public static class Measurement {
+
+        /**The name of the scenario.*/
+        private final String scenario;
+
+        /**The level of load.*/
+        private final int scale;
+
+        /**The number of measured ticks.*/
+        private final int ticks;
+
+        /**The tick time percentiles and maximum, in ns.*/
+        private final long p50, p99, p999, max;
+
+        /**The bytes allocated per tick by the ticking thread; -1 if unsupported.*/
+        private final long allocatedPerTick;
+
+        /**The heap in use after the run, in bytes.*/
+        private final long heapUsed;
+
+        /**The thresholds that were not met.*/
+        private final List<String> failures = new ArrayList<String>();
+
+        Measurement(final String scenario, final int scale, final long[] sortedTicks, final long allocatedPerTick, final long heapUsed) {
+            this.scenario = scenario;
+            this.scale = scale;
+            this.ticks = sortedTicks.length;
+            this.p50 = percentile(sortedTicks, 0.50);
+            this.p99 = percentile(sortedTicks, 0.99);
+            this.p999 = percentile(sortedTicks, 0.999);
+            this.max = sortedTicks.length == 0 ? 0 : sortedTicks[sortedTicks.length - 1];
+            this.allocatedPerTick = allocatedPerTick;
+            this.heapUsed = heapUsed;
+        }
+
+        private static long percentile(final long[] sorted, final double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        void fail(final String failure) {
+            failures.add(failure);
+        }
+
+        public String getScenario() {
+            return this.scenario;
+        }
+
+        public int getScale() {
+            return this.scale;
+        }
+
+        public long getP50() {
+            return this.p50;
+        }
+
+        public long getP99() {
+            return this.p99;
+        }
+
+        public long getP999() {
+            return this.p999;
+        }
+
+        public long getMax() {
+            return this.max;
+        }
+
+        public long getAllocatedPerTick() {
+            return this.allocatedPerTick;
+        }
+
+        public long getHeapUsed() {
+            return this.heapUsed;
+        }
+
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        public boolean isPassed() {
+            return failures.isEmpty();
+        }
+    }
+}
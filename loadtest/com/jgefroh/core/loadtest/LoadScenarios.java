@@ -0,0 +1,593 @@
+package com.jgefroh.core.loadtest;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.jgefroh.core.AbstractComponent;
+import com.jgefroh.core.AbstractInfoPack;
+import com.jgefroh.core.AbstractPooledMessage;
+import com.jgefroh.core.AbstractSystem;
+import com.jgefroh.core.Core;
+import com.jgefroh.core.Entity;
+import com.jgefroh.core.IComponent;
+import com.jgefroh.core.IEntity;
+import com.jgefroh.core.IInfoPack;
+import com.jgefroh.core.IMessage;
+import com.jgefroh.core.IMessageHandler;
+import com.jgefroh.core.MessagePool;
+
+
+/**
+ * The built-in scenarios run by {@link LoadTest}.
+ * 
+ * <p>
+ * Each scenario stresses one dimension of {@code Core}: entity count, pack
+ * count, system count, message rate, pooled message rate, a rising rate of
+ * entity churn and warning storms. The scale is the number of entities, except where noted.
+ * The pack scenarios are run with 1, 4 and 15 pack types to ramp the pack
+ * count.
+ * </p>
+ * 
+ * @see LoadTest
+ */
+public final class LoadScenarios {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The name of the pooled messages scenario, which should not allocate per message.*/
+    public static final String POOLED_MESSAGES = "pooled-messages";
+
+    /**The number of ticks between each rise of the churn rate.*/
+    private static final long CHURN_RAMP_TICKS = 10;
+
+    /**The highest churn rate, in entities replaced per thousand per tick.*/
+    private static final long MAX_CHURN_PERMILLE = 100;
+
+    /**The component types the mask packs choose from, by bit.*/
+    private static final Class<?>[] COMPONENT_TYPES = {Position.class, Velocity.class, Health.class, Armor.class};
+
+    /**The pack types of the packs scenario, one per combination of components.*/
+    private static final List<Class<? extends IInfoPack>> PACK_TYPES = Collections.unmodifiableList(
+            Arrays.<Class<? extends IInfoPack>> asList(Pack1.class, Pack2.class, Pack3.class, Pack4.class, Pack5.class,
+                    Pack6.class, Pack7.class, Pack8.class, Pack9.class, Pack10.class, Pack11.class, Pack12.class,
+                    Pack13.class, Pack14.class, Pack15.class));
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    private LoadScenarios() {
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Gets every built-in scenario.
+     * @return  the scenarios
+     */
+    public static List<ILoadScenario> all() {
+        return Arrays.asList(entities(), packs(1), packs(4), packs(15), systems(), messages(), pooledMessages(), churn(), warnings());
+    }
+
+    /**
+     * Moves every entity every tick with a single system.
+     * @return  the scenario
+     */
+    public static ILoadScenario entities() {
+        return new ILoadScenario() {
+            @Override
+            public String getName() {
+                return "entities";
+            }
+
+            @Override
+            public void setUp(final Core core, final int scale) {
+                core.add(new MovementPack());
+                core.add(new MovementSystem(core));
+                spawn(core, scale);
+            }
+
+            @Override
+            public void step(final Core core, final int scale, final long tick) {
+            }
+        };
+    }
+
+    /**
+     * Evaluates every entity against the passed number of pack types, each
+     * requiring a different combination of components.
+     * @param packCount the number of pack types, from 1 to 15
+     * @return  the scenario
+     */
+    public static ILoadScenario packs(final int packCount) {
+        final int count = Math.max(1, Math.min(PACK_TYPES.size(), packCount));
+
+        return new ILoadScenario() {
+            @Override
+            public String getName() {
+                return "packs-" + count;
+            }
+
+            @Override
+            public void setUp(final Core core, final int scale) {
+                for (int i = 0; i < count; i++) {
+                    try {
+                        core.add(PACK_TYPES.get(i).getDeclaredConstructor().newInstance());
+                    }
+                    catch (NoSuchMethodException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    catch (InstantiationException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    catch (InvocationTargetException e) {
+                        throw new IllegalStateException(e.getCause());
+                    }
+                }
+
+                for (int i = 0; i < scale; i++) {//Each entity holds a different mix of components
+                    Entity entity = new Entity();
+                    int mask = i % 16;
+                    if ((mask & 1) != 0) {
+                        entity.addComponent(new Position());
+                    }
+                    if ((mask & 2) != 0) {
+                        entity.addComponent(new Velocity());
+                    }
+                    if ((mask & 4) != 0) {
+                        entity.addComponent(new Health());
+                    }
+                    if ((mask & 8) != 0) {
+                        entity.addComponent(new Armor());
+                    }
+                    core.addEntity(entity);
+                }
+            }
+
+            @Override
+            public void step(final Core core, final int scale, final long tick) {
+                IEntity entity = core.getEntityWithID(Long.toString(1 + tick % scale));
+                if (entity != null) {//Forces re-evaluation of one entity per tick
+                    if (entity.getComponent(Health.class) == null) {
+                        entity.addComponent(new Health());
+                    }
+                    else {
+                        entity.removeComponent(Health.class);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs one system per 100 entities, each iterating the same pack.
+     * @return  the scenario
+     */
+    public static ILoadScenario systems() {
+        return new ILoadScenario() {
+            @Override
+            public String getName() {
+                return "systems";
+            }
+
+            @Override
+            public void setUp(final Core core, final int scale) {
+                core.add(new MovementPack());
+                for (int i = 0; i < Math.max(1, scale / 100); i++) {
+                    core.add(new MovementSystem(core));
+                }
+                spawn(core, 1000);
+            }
+
+            @Override
+            public void step(final Core core, final int scale, final long tick) {
+            }
+        };
+    }
+
+    /**
+     * Sends as many messages per tick as the scale, to two handlers.
+     * @return  the scenario
+     */
+    public static ILoadScenario messages() {
+        return new ILoadScenario() {
+            private final Ping ping = new Ping();
+
+            @Override
+            public String getName() {
+                return "messages";
+            }
+
+            @Override
+            public void setUp(final Core core, final int scale) {
+                IMessageHandler<Ping> handler = new IMessageHandler<Ping>() {
+                    @Override
+                    public void onMessageReceived(final Ping message) {
+                        message.count++;
+                    }
+                };
+                core.addHandler(Ping.class, handler);
+                core.addHandler(Ping.class, new IMessageHandler<Ping>() {
+                    @Override
+                    public void onMessageReceived(final Ping message) {
+                        message.count--;
+                    }
+                });
+            }
+
+            @Override
+            public void step(final Core core, final int scale, final long tick) {
+                for (int i = 0; i < scale; i++) {
+                    core.send(ping);
+                }
+            }
+        };
+    }
+
+    /**
+     * Sends as many pooled messages per tick as the scale, to two handlers.
+     * 
+     * <p>
+     * Messages are obtained from a {@link MessagePool} and recycled by
+     * {@code Core}, so the allocation per tick should not grow with the scale.
+     * </p>
+     * @return  the scenario
+     */
+    public static ILoadScenario pooledMessages() {
+        return new ILoadScenario() {
+            private final MessagePool<PooledPing> pool = new MessagePool<PooledPing>(16) {
+                @Override
+                protected PooledPing create() {
+                    return new PooledPing();
+                }
+            };
+
+            @Override
+            public String getName() {
+                return POOLED_MESSAGES;
+            }
+
+            @Override
+            public void setUp(final Core core, final int scale) {
+                IMessageHandler<PooledPing> handler = new IMessageHandler<PooledPing>() {
+                    @Override
+                    public void onMessageReceived(final PooledPing message) {
+                        message.count++;
+                    }
+                };
+                core.addHandler(PooledPing.class, handler);
+                core.addHandler(PooledPing.class, new IMessageHandler<PooledPing>() {
+                    @Override
+                    public void onMessageReceived(final PooledPing message) {
+                        message.count--;
+                    }
+                });
+            }
+
+            @Override
+            public void step(final Core core, final int scale, final long tick) {
+                for (int i = 0; i < scale; i++) {
+                    PooledPing ping = pool.obtain();
+                    ping.count = i;
+                    core.send(ping);
+                }
+            }
+        };
+    }
+
+    /**
+     * Replaces a growing share of the entities every tick.
+     * 
+     * <p>
+     * The rate starts at 0.1% of the scale per tick and rises by 0.1% every
+     * {@value #CHURN_RAMP_TICKS} ticks, up to 10%, so the run shows how tick
+     * times grow with the churn rate.
+     * </p>
+     * @return  the scenario
+     */
+    public static ILoadScenario churn() {
+        return new ILoadScenario() {
+            private final List<String> ids = new ArrayList<String>();
+
+            @Override
+            public String getName() {
+                return "churn";
+            }
+
+            @Override
+            public void setUp(final Core core, final int scale) {
+                ids.clear();
+                core.add(new MovementPack());
+                core.add(new MovementSystem(core));
+                for (int i = 0; i < scale; i++) {
+                    ids.add(spawn(core));
+                }
+            }
+
+            @Override
+            public void step(final Core core, final int scale, final long tick) {
+                long permille = Math.min(MAX_CHURN_PERMILLE, 1 + tick / CHURN_RAMP_TICKS);
+                int count = (int) Math.max(1, scale * permille / 1000);
+                int start = (int) ((tick * count) % scale);
+
+                for (int i = 0; i < count; i++) {
+                    int index = (start + i) % scale;
+                    core.removeEntity(ids.get(index));
+                    ids.set(index, spawn(core));
+                }
+            }
+        };
+    }
+
+    /**
+     * Causes a tenth of the scale in warnings every tick, through the path
+     * {@code Core} itself logs on.
+     * @return  the scenario
+     */
+    public static ILoadScenario warnings() {
+        return new ILoadScenario() {
+            @Override
+            public String getName() {
+                return "warnings";
+            }
+
+            @Override
+            public void setUp(final Core core, final int scale) {
+                core.add(new MovementPack());
+                core.add(new MovementSystem(core));
+                spawn(core, 1000);
+            }
+
+            @Override
+            public void step(final Core core, final int scale, final long tick) {
+                for (int i = 0; i < Math.max(1, scale / 10); i++) {
+                    core.addEntity(null);//Logs a warning
+                }
+            }
+        };
+    }
+
+    /**
+     * Adds the passed number of moving entities.
+     */
+    private static void spawn(final Core core, final int count) {
+        for (int i = 0; i < count; i++) {
+            spawn(core);
+        }
+    }
+
+    /**
+     * Adds a moving entity.
+     * @return  the ID of the entity
+     */
+    private static String spawn(final Core core) {
+        Entity entity = new Entity();
+        entity.addComponent(new Position());
+        Velocity velocity = new Velocity();
+        velocity.dx = 1;
+        velocity.dy = 1;
+        entity.addComponent(velocity);
+        core.addEntity(entity);
+        return entity.getID();
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    public static class Position extends AbstractComponent {
+        private static final long serialVersionUID = 1L;
+        public float x;
+        public float y;
+    }
+
+    public static class Velocity extends AbstractComponent {
+        private static final long serialVersionUID = 1L;
+        public float dx;
+        public float dy;
+    }
+
+    public static class Health extends AbstractComponent {
+        private static final long serialVersionUID = 1L;
+        public int hp = 100;
+    }
+
+    public static class Armor extends AbstractComponent {
+        private static final long serialVersionUID = 1L;
+        public int points = 10;
+    }
+
+    public static class Ping implements IMessage {
+        public long count;
+    }
+
+    public static class PooledPing extends AbstractPooledMessage {
+        public long count;
+
+        @Override
+        protected void reset() {
+            count = 0;
+        }
+    }
+
+    /**
+     * A pack that requires the passed component types.
+     */
+    private abstract static class RequiresPack extends AbstractInfoPack {
+        private final Class<?>[] types;
+
+        RequiresPack(final Class<?>... types) {
+            this.types = types;
+        }
+
+        @Override
+        public boolean setEntity(final IEntity entity) {
+            setCurrent(entity);
+            return checkComponents(entity);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean checkComponents(final IEntity entity) {
+            for (Class<?> each : types) {
+                if (entity.getComponent((Class<? extends IComponent>) each) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static class MovementPack extends RequiresPack {
+        public MovementPack() {
+            super(Position.class, Velocity.class);
+        }
+    }
+
+    /**
+     * A pack that requires the components whose bits are set in the mask:
+     * 1 for Position, 2 for Velocity, 4 for Health and 8 for Armor.
+     */
+    private abstract static class MaskPack extends RequiresPack {
+        MaskPack(final int mask) {
+            super(typesOf(mask));
+        }
+
+        private static Class<?>[] typesOf(final int mask) {
+            List<Class<?>> types = new ArrayList<Class<?>>();
+            for (int bit = 0; bit < COMPONENT_TYPES.length; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    types.add(COMPONENT_TYPES[bit]);
+                }
+            }
+            return types.toArray(new Class<?>[types.size()]);
+        }
+    }
+
+    public static class Pack1 extends MaskPack {
+        public Pack1() {
+            super(1);
+        }
+    }
+
+    public static class Pack2 extends MaskPack {
+        public Pack2() {
+            super(2);
+        }
+    }
+
+    public static class Pack3 extends MaskPack {
+        public Pack3() {
+            super(3);
+        }
+    }
+
+    public static class Pack4 extends MaskPack {
+        public Pack4() {
+            super(4);
+        }
+    }
+
+    public static class Pack5 extends MaskPack {
+        public Pack5() {
+            super(5);
+        }
+    }
+
+    public static class Pack6 extends MaskPack {
+        public Pack6() {
+            super(6);
+        }
+    }
+
+    public static class Pack7 extends MaskPack {
+        public Pack7() {
+            super(7);
+        }
+    }
+
+    public static class Pack8 extends MaskPack {
+        public Pack8() {
+            super(8);
+        }
+    }
+
+    public static class Pack9 extends MaskPack {
+        public Pack9() {
+            super(9);
+        }
+    }
+
+    public static class Pack10 extends MaskPack {
+        public Pack10() {
+            super(10);
+        }
+    }
+
+    public static class Pack11 extends MaskPack {
+        public Pack11() {
+            super(11);
+        }
+    }
+
+    public static class Pack12 extends MaskPack {
+        public Pack12() {
+            super(12);
+        }
+    }
+
+    public static class Pack13 extends MaskPack {
+        public Pack13() {
+            super(13);
+        }
+    }
+
+    public static class Pack14 extends MaskPack {
+        public Pack14() {
+            super(14);
+        }
+    }
+
+    public static class Pack15 extends MaskPack {
+        public Pack15() {
+            super(15);
+        }
+    }
+
+    /**
+     * Moves every entity that can use the movement pack.
+     */
+    public static class MovementSystem extends AbstractSystem {
+        private final Core core;
+
+        public MovementSystem(final Core core) {
+            this.core = core;
+        }
+
+        @Override
+        public void work(final long now) {
+            Iterator<IEntity> entities = core.getEntitiesWithPack(MovementPack.class);
+            while (entities.hasNext()) {
+                IEntity entity = entities.next();
+                Position position = entity.getComponent(Position.class);
+                Velocity velocity = entity.getComponent(Velocity.class);
+                position.x += velocity.dx;
+                position.y += velocity.dy;
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.jgefroh.core.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jgefroh.core.Core;
+import com.jgefroh.core.ManualClock;
+
+
+/**
+ * Ramps the load of scenarios against {@code Core} and measures each level.
+ * 
+ * <p>
+ * Every scale of every scenario runs in a fresh {@code Core} driven by a
+ * {@link ManualClock}, so wait-based systems fire the same way on every run.
+ * After the warm-up ticks, each tick is timed and the report records the
+ * p50, p99 and p999 tick times, the bytes allocated per tick by the ticking
+ * thread and the heap in use. A level fails if it exceeds a threshold.
+ * </p>
+ * 
+ * <p>
+ * Run {@link #main(String[])} to execute {@link LoadScenarios} and print
+ * the report as JSON; the exit code is 1 if any threshold was exceeded.
+ * </p>
+ * 
+ * @see ILoadScenario
+ * @see LoadReport
+ */
+public class LoadTest {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The levels of load to run each scenario at.*/
+    private int[] scales = {1000, 10000, 100000};
+
+    /**The number of ticks run before measuring.*/
+    private int warmupTicks = 200;
+
+    /**The number of ticks measured.*/
+    private int measuredTicks = 1000;
+
+    /**The simulated time that passes each tick, in ms.*/
+    private long step = 16;
+
+    /**The longest allowed p99 tick time, in ns; 0 for no limit.*/
+    private long maxP99;
+
+    /**The longest allowed p999 tick time, in ns; 0 for no limit.*/
+    private long maxP999;
+
+    /**The most bytes allowed to be allocated per tick; 0 for no limit.*/
+    private long maxAllocatedPerTick;
+
+    /**Holds the most bytes allowed to be allocated per tick by specific scenarios, by scenario name.*/
+    private final Map<String, Long> maxAllocatedByScenario = new HashMap<String, Long>();
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Runs every scenario at every scale.
+     * @param scenarios the scenarios to run
+     * @return          the measurements of every level
+     */
+    public LoadReport run(final List<? extends ILoadScenario> scenarios) {
+        LoadReport report = new LoadReport();
+        for (ILoadScenario scenario : scenarios) {
+            for (int scale : scales) {
+                report.add(measure(scenario, scale));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Runs a scenario at a single scale.
+     * @param scenario  the scenario to run
+     * @param scale     the level of load
+     * @return          the measurements of the level
+     */
+    public LoadReport.Measurement measure(final ILoadScenario scenario, final int scale) {
+        ManualClock clock = new ManualClock();
+        Core core = new Core(clock);
+        scenario.setUp(core, scale);
+
+        long tick = 0;
+        for (int i = 0; i < warmupTicks; i++) {
+            tick(core, clock, scenario, scale, tick++);
+        }
+
+        long[] times = new long[measuredTicks];
+        long allocatedBefore = getAllocatedBytes();
+
+        for (int i = 0; i < measuredTicks; i++) {
+            long start = System.nanoTime();
+            tick(core, clock, scenario, scale, tick++);
+            times[i] = System.nanoTime() - start;
+        }
+
+        long allocatedAfter = getAllocatedBytes();
+        long allocatedPerTick = allocatedBefore < 0 || measuredTicks == 0 ? -1 : (allocatedAfter - allocatedBefore) / measuredTicks;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        Arrays.sort(times);
+        LoadReport.Measurement measurement = new LoadReport.Measurement(scenario.getName(), scale, times,
+                allocatedPerTick, memory.getHeapMemoryUsage().getUsed());
+
+        if (maxP99 > 0 && measurement.getP99() > maxP99) {
+            measurement.fail("p99 " + measurement.getP99() + " ns exceeds " + maxP99 + " ns");
+        }
+        if (maxP999 > 0 && measurement.getP999() > maxP999) {
+            measurement.fail("p999 " + measurement.getP999() + " ns exceeds " + maxP999 + " ns");
+        }
+        Long scenarioLimit = maxAllocatedByScenario.get(scenario.getName());
+        long allocationLimit = scenarioLimit == null ? maxAllocatedPerTick : scenarioLimit;
+        if (allocationLimit > 0 && allocatedPerTick > allocationLimit) {
+            measurement.fail("allocated " + allocatedPerTick + " bytes per tick exceeds " + allocationLimit);
+        }
+        return measurement;
+    }
+
+    /**
+     * Applies the scenario's load and runs one tick.
+     */
+    private void tick(final Core core, final ManualClock clock, final ILoadScenario scenario, final int scale, final long tick) {
+        clock.advance(step);
+        scenario.step(core, scale, tick);
+        core.work();
+    }
+
+    /**
+     * Gets the bytes allocated so far by the current thread.
+     * @return  the number of bytes; -1 if the JVM does not support it
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public void setScales(final int... scales) {
+        this.scales = scales.clone();
+    }
+
+    public void setWarmupTicks(final int warmupTicks) {
+        this.warmupTicks = warmupTicks;
+    }
+
+    public void setMeasuredTicks(final int measuredTicks) {
+        this.measuredTicks = measuredTicks;
+    }
+
+    /**
+     * Sets the simulated time that passes each tick.
+     * @param step  the time, in ms
+     */
+    public void setStep(final long step) {
+        this.step = step;
+    }
+
+    /**
+     * Sets the longest allowed p99 tick time.
+     * @param maxP99    the time, in ns; 0 for no limit
+     */
+    public void setMaxP99(final long maxP99) {
+        this.maxP99 = maxP99;
+    }
+
+    /**
+     * Sets the longest allowed p999 tick time.
+     * @param maxP999   the time, in ns; 0 for no limit
+     */
+    public void setMaxP999(final long maxP999) {
+        this.maxP999 = maxP999;
+    }
+
+    /**
+     * Sets the most bytes allowed to be allocated per tick.
+     * @param maxAllocatedPerTick   the number of bytes; 0 for no limit
+     */
+    public void setMaxAllocatedPerTick(final long maxAllocatedPerTick) {
+        this.maxAllocatedPerTick = maxAllocatedPerTick;
+    }
+
+    /**
+     * Sets the most bytes a specific scenario may allocate per tick.
+     * 
+     * <p>
+     * Overrides {@link #setMaxAllocatedPerTick(long)} for that scenario.
+     * </p>
+     * @param scenario              the name of the scenario
+     * @param maxAllocatedPerTick   the number of bytes; 0 for no limit
+     */
+    public void setMaxAllocatedPerTick(final String scenario, final long maxAllocatedPerTick) {
+        maxAllocatedByScenario.put(scenario, maxAllocatedPerTick);
+    }
+
+    /**
+     * Runs the built-in scenarios and prints the report as JSON.
+     * 
+     * <p>
+     * Arguments, all optional: the p99 limit in ms, the p999 limit in ms,
+     * and the scales to run, e.g. {@code 16 33 1000 10000 100000}.
+     * </p>
+     * @param args  the limits and scales
+     */
+    public static void main(final String[] args) {
+        LoadTest test = new LoadTest();
+        test.setMaxAllocatedPerTick(LoadScenarios.POOLED_MESSAGES, 4096);//Pooled sends must not allocate per message
+
+        if (args.length > 0) {
+            test.setMaxP99(Long.parseLong(args[0]) * 1000000);
+        }
+        if (args.length > 1) {
+            test.setMaxP999(Long.parseLong(args[1]) * 1000000);
+        }
+        if (args.length > 2) {
+            int[] scales = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                scales[i - 2] = Integer.parseInt(args[i]);
+            }
+            test.setScales(scales);
+        }
+
+        List<ILoadScenario> scenarios = new ArrayList<ILoadScenario>(LoadScenarios.all());
+        LoadReport report = test.run(scenarios);
+        System.out.println(report.toJson());
+        System.exit(report.isPassed() ? 0 : 1);
+    }
+}
@@ -0,0 +1,136 @@
+package com.jgefroh.core.loadtest;
+
+import java.io.OutputStream;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+
+import com.jgefroh.core.Core;
+import com.jgefroh.core.LoggerFactory;
+
+
+/**
+ * Compares tick times during a warning storm before and after logging was
+ * moved off the tick thread.
+ *
+ * <p>
+ * The {@link LoadScenarios#warnings()} scenario is measured twice at each
+ * scale: once with {@code Core} writing every warning synchronously, as a
+ * console handler attached to each logger did, and once with the shared
+ * {@link com.jgefroh.core.AsyncLogHandler}. The synchronous run writes to a
+ * stream that discards its output, so it measures the formatting and
+ * flushing on the tick thread without flooding the console.
+ * </p>
+ *
+ * <p>
+ * Run {@link #main(String[])} with the scales to measure; the report is
+ * printed as JSON, with the scenarios named {@code warnings-sync} and
+ * {@code warnings-async}.
+ * </p>
+ *
+ * @see LoadTest
+ */
+public class WarningStormBenchmark {
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Measures the warning storm with both handlers at every scale.
+     * @param test      the load test that measures each level
+     * @param scales    the levels of load
+     * @return          the measurements, synchronous first at each scale
+     */
+    public static LoadReport run(final LoadTest test, final int... scales) {
+        LoadReport report = new LoadReport();
+        Logger logger = Logger.getLogger(Core.class.getName());
+
+        for (int scale : scales) {
+            Handler synchronous = new FlushingHandler();
+            Level level = LoggerFactory.getHandler().getLevel();
+            logger.addHandler(synchronous);
+            LoggerFactory.getHandler().setLevel(Level.OFF);
+            try {
+                report.add(test.measure(renamed(LoadScenarios.warnings(), "warnings-sync"), scale));
+            }
+            finally {
+                LoggerFactory.getHandler().setLevel(level);
+                logger.removeHandler(synchronous);
+            }
+
+            report.add(test.measure(renamed(LoadScenarios.warnings(), "warnings-async"), scale));
+        }
+        return report;
+    }
+
+    /**
+     * Runs the comparison and prints the report as JSON.
+     * @param args  the scales to measure; 1000, 10000 and 100000 if none
+     */
+    public static void main(final String[] args) {
+        int[] scales = {1000, 10000, 100000};
+        if (args.length > 0) {
+            scales = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                scales[i] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.println(run(new LoadTest(), scales).toJson());
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    /**
+     * Gives the passed scenario another name in the report.
+     */
+    private static ILoadScenario renamed(final ILoadScenario scenario, final String name) {
+        return new ILoadScenario() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void setUp(final Core core, final int scale) {
+                scenario.setUp(core, scale);
+            }
+
+            @Override
+            public void step(final Core core, final int scale, final long tick) {
+                scenario.step(core, scale, tick);
+            }
+        };
+    }
+
+    /**
+     * Formats and flushes every record on the calling thread, like a console handler.
+     */
+    private static class FlushingHandler extends StreamHandler {
+
+        public FlushingHandler() {
+            super(new OutputStream() {
+                @Override
+                public void write(final int b) {
+                }
+
+                @Override
+                public void write(final byte[] bytes, final int offset, final int length) {
+                }
+            }, new SimpleFormatter());
+            setLevel(Level.ALL);
+        }
+
+        @Override
+        public synchronized void publish(final LogRecord record) {
+            super.publish(record);
+            flush();
+        }
+    }
+}
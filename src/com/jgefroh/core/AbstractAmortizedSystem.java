@@ -0,0 +1,212 @@
+package com.jgefroh.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * An abstract system that spreads its work over several executions.
+ *
+ *
+ * <p>
+ * Each execution processes a window of the entities that can use the pack
+ * type, continuing where the previous execution stopped. A sweep works from
+ * the entities that could use the pack when it began: entities added during
+ * the sweep wait for the next one, and entities removed during the sweep are
+ * skipped.
+ * </p>
+ *
+ * <p>
+ * The size of the window is the smallest of the per-execution budget, the
+ * share needed to finish a sweep within the sweep period, and the number of
+ * entities that fit in the time budget based on measured processing time.
+ * Limits that are not set are ignored. Processing time is measured with the
+ * clock of {@code Core}, so under a {@link ManualClock} it measures as zero
+ * and the time budget never limits the window, keeping runs deterministic.
+ * </p>
+ */
+public abstract class AbstractAmortizedSystem extends AbstractSystem {
+
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The Core that holds the entities.*/
+    private final Core core;
+
+    /**The type of pack the entities must be able to use.*/
+    private final Class<? extends IInfoPack> packType;
+
+    /**The entities of the current sweep.*/
+    private final List<IEntity> sweep;
+
+    /**The position of the next entity to process in the current sweep.*/
+    private int cursor;
+
+    /**The maximum number of entities to process per execution; 0 for no limit.*/
+    private int budget;
+
+    /**The time, in ms, a full sweep should take; 0 for no limit.*/
+    private long sweepPeriod;
+
+    /**The time, in ns, an execution may spend processing; 0 for no limit.*/
+    private long timeBudget;
+
+    /**The average time, in ns, spent processing a single entity.*/
+    private double averageTime;
+
+    /**The time of the previous execution, in ms.*/
+    private long previous = -1;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate a system that processes the entities
+     * that can use the passed pack type.
+     * @param core      the Core that holds the entities
+     * @param packType  the type of pack the entities must be able to use
+     */
+    public AbstractAmortizedSystem(final Core core, final Class<? extends IInfoPack> packType) {
+        this.core = core;
+        this.packType = packType;
+        this.sweep = new ArrayList<IEntity>();
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    @Override
+    public final void work(final long now) {
+        if (cursor >= sweep.size()) {
+            beginSweep();
+        }
+
+        int limit = getWindowSize(now);
+        int processed = 0;
+        IClock clock = core.getClock();
+        long start = clock.nanoTime();
+
+        while (processed < limit && cursor < sweep.size()) {
+            IEntity entity = sweep.set(cursor++, null);
+
+            if (core.isEntityAllowedToUsePack(entity, packType)) {
+                process(entity, now);
+                processed++;
+            }
+        }
+
+        if (processed > 0) {
+            double time = (double) (clock.nanoTime() - start) / processed;
+            averageTime = averageTime == 0 ? time : averageTime * 0.9 + time * 0.1;
+        }
+        previous = now;
+    }
+
+    /**
+     * Processes a single entity.
+     * @param entity    the entity to process
+     * @param now       the current time, in ms
+     */
+    protected abstract void process(final IEntity entity, final long now);
+
+    /**
+     * Starts a new sweep over the entities that can currently use the pack.
+     */
+    private void beginSweep() {
+        sweep.clear();
+        cursor = 0;
+
+        Iterator<IEntity> entities = core.getEntitiesWithPack(packType);
+        while (entities.hasNext()) {
+            sweep.add(entities.next());
+        }
+    }
+
+    /**
+     * Gets the number of entities to process in this execution.
+     * @param now   the current time, in ms
+     * @return      the number of entities to process
+     */
+    private int getWindowSize(final long now) {
+        int limit = Integer.MAX_VALUE;
+
+        if (budget > 0) {
+            limit = budget;
+        }
+
+        if (sweepPeriod > 0) {
+            long elapsed = previous >= 0 ? now - previous : Math.max(1, getWait());//First run: assume one wait
+            long share = (sweep.size() * elapsed + sweepPeriod - 1) / sweepPeriod;
+            limit = (int) Math.min(limit, Math.max(share, 1));
+        }
+
+        if (timeBudget > 0 && averageTime > 0) {
+            long fits = (long) (timeBudget / averageTime);
+            limit = (int) Math.min(limit, Math.max(fits, 1));
+        }
+        return limit;
+    }
+
+    /**
+     * Sets the maximum number of entities to process per execution.
+     * @param budget    the number of entities; 0 for no limit
+     */
+    public void setBudget(final int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Gets the maximum number of entities to process per execution.
+     * @return  the number of entities; 0 for no limit
+     */
+    public int getBudget() {
+        return this.budget;
+    }
+
+    /**
+     * Sets the time a full sweep over the entities should take.
+     * @param sweepPeriod   the time, in ms; 0 for no limit
+     */
+    public void setSweepPeriod(final long sweepPeriod) {
+        this.sweepPeriod = sweepPeriod;
+    }
+
+    /**
+     * Gets the time a full sweep over the entities should take.
+     * @return  the time, in ms; 0 for no limit
+     */
+    public long getSweepPeriod() {
+        return this.sweepPeriod;
+    }
+
+    /**
+     * Sets the time an execution may spend processing entities.
+     * @param timeBudget    the time, in ns; 0 for no limit
+     */
+    public void setTimeBudget(final long timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Gets the time an execution may spend processing entities.
+     * @return  the time, in ns; 0 for no limit
+     */
+    public long getTimeBudget() {
+        return this.timeBudget;
+    }
+
+    /**
+     * Gets the number of entities left in the current sweep.
+     * @return  the number of entities that have not been reached yet
+     */
+    public int getRemaining() {
+        return sweep.size() - cursor;
+    }
+}
@@ -0,0 +1,297 @@
+package com.jgefroh.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * An abstract system that runs blocking work off of the tick thread.
+ *
+ *
+ * <p>
+ * Extend this {@code System} for work that talks to disk or the network.
+ * Tasks handed to {@link #submit(Callable)} run on background threads; the
+ * {@code IMessage} each task returns is sent through {@code Core} on the
+ * tick thread at the start of the next tick, whatever this system's wait
+ * time, so entities and components are still only ever written from the
+ * tick thread.
+ * </p>
+ *
+ * <p>
+ * Tasks that run past their deadline are cancelled, even if no tick runs.
+ * All pending tasks are cancelled when the system is stopped, and results
+ * of tasks submitted before the stop are discarded, even if they finish
+ * afterwards.
+ * </p>
+ */
+public abstract class AbstractAsyncSystem extends AbstractSystem {
+
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The Core that results are sent through.*/
+    private final Core core;
+
+    /**Runs the submitted tasks.*/
+    private ExecutorService executor;
+
+    /**Cancels tasks that run past their deadline; null until a deadline is set.*/
+    private ScheduledExecutorService deadlines;
+
+    /**The tasks that have been submitted but not yet collected.*/
+    private final List<AsyncTask> pending;
+
+    /**The finished tasks, waiting for their results to be sent on the tick thread.*/
+    private final Queue<AsyncTask> completed;
+
+    /**The number of times the system was stopped; results of earlier tasks are discarded.*/
+    private volatile int generation;
+
+    /**The time, in ms, a task may run before it is cancelled; 0 for no limit.*/
+    private long timeout;
+
+    /**Logger for debug purposes.*/
+    private final Logger LOGGER = LoggerFactory.getLogger(this.getClass(), Level.INFO);
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate a system that sends its results through
+     * the passed {@code Core}.
+     * @param core  the Core to send results through
+     */
+    public AbstractAsyncSystem(final Core core) {
+        this.core = core;
+        this.pending = new ArrayList<AsyncTask>();
+        this.completed = new ConcurrentLinkedQueue<AsyncTask>();
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    @Override
+    public void start() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(new DaemonThreadFactory(this.getClass().getSimpleName()));
+        }
+        super.start();
+    }
+
+    @Override
+    public final void work(final long now) {
+        workAsync(now);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        generation++;
+        for (AsyncTask task : pending) {
+            task.cancel(true);
+        }
+        pending.clear();
+        completed.clear();
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (deadlines != null) {
+            deadlines.shutdownNow();
+            deadlines = null;
+        }
+    }
+
+    /**
+     * Executes this {@code System's} work on the tick thread.
+     *
+     * <p>
+     * Called by {@link #work(long)}; the results of tasks that finished
+     * before the tick started have already been sent.
+     * </p>
+     * @param now   the current time, in ms
+     */
+    protected abstract void workAsync(final long now);
+
+    /**
+     * Runs the passed task on a background thread, with the default timeout.
+     *
+     * <p>
+     * The task must not touch entities or components. If it returns a
+     * message, the message is sent through {@code Core} at the start of the
+     * next tick.
+     * </p>
+     * @param task  the blocking work to perform
+     * @return      true if the task was submitted; false if the system is not running
+     */
+    protected boolean submit(final Callable<? extends IMessage> task) {
+        return submit(task, timeout);
+    }
+
+    /**
+     * Runs the passed task on a background thread, cancelling it if it runs
+     * longer than the passed time.
+     * @param task      the blocking work to perform
+     * @param timeout   the time, in ms, the task may run; 0 for no limit
+     * @return          true if the task was submitted; false if the system is not running
+     */
+    protected boolean submit(final Callable<? extends IMessage> task, final long timeout) {
+        if (task == null || executor == null || !isRunning()) {
+            LOGGER.log(Level.WARNING, "Task was not submitted.");
+            return false;
+        }
+
+        final AsyncTask asyncTask = new AsyncTask(task, generation);
+        pending.add(asyncTask);
+        executor.execute(asyncTask);
+
+        if (timeout > 0) {
+            if (deadlines == null) {
+                deadlines = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(this.getClass().getSimpleName() + "-deadline"));
+            }
+            deadlines.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (asyncTask.cancel(true)) {
+                        LOGGER.log(Level.WARNING, "Task timed out after {0} ms.", timeout);
+                    }
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Sends the results of finished tasks and forgets tasks that are done.
+     * 
+     * <p>
+     * Called by {@code Core} on the tick thread at the start of every tick.
+     * </p>
+     */
+    void collect() {
+        Iterator<AsyncTask> iter = pending.iterator();
+
+        while (iter.hasNext()) {
+            if (iter.next().isDone()) {
+                iter.remove();
+            }
+        }
+
+        AsyncTask task;
+        while ((task = completed.poll()) != null) {
+            if (task.generation == generation) {
+                core.send(task.result);
+            }
+        }
+    }
+
+    /**
+     * Sets the default time a task may run before it is cancelled.
+     * @param timeout   the time, in ms; 0 for no limit
+     */
+    public void setTimeout(final long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets the default time a task may run before it is cancelled.
+     * @return  the time, in ms; 0 for no limit
+     */
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Gets the number of tasks that have been submitted but not yet collected.
+     * @return  the number of pending tasks
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    /**
+     * A submitted task that queues its result when it finishes.
+     */
+    private class AsyncTask extends FutureTask<IMessage> {
+
+        /**The generation of the system when the task was submitted.*/
+        private final int generation;
+
+        /**The message the task returned.*/
+        private IMessage result;
+
+        @SuppressWarnings("unchecked")
+        public AsyncTask(final Callable<? extends IMessage> task, final int generation) {
+            super((Callable<IMessage>) task);
+            this.generation = generation;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || generation != AbstractAsyncSystem.this.generation) {
+                return;
+            }
+
+            try {
+                result = get();
+                if (result != null) {
+                    completed.offer(this);
+                }
+            }
+            catch (ExecutionException e) {
+                LOGGER.log(Level.WARNING, "Task failed.", e.getCause());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Creates daemon threads so that pending tasks never keep the game alive.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        /**The prefix of the thread names.*/
+        private final String name;
+
+        /**The number of threads created.*/
+        private int count;
+
+        public DaemonThreadFactory(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public synchronized Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + (++count));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.jgefroh.core;
+
+
+/**
+ * A message that is reused instead of being garbage collected.
+ * 
+ * <p>
+ * Obtain instances from a {@link MessagePool}. {@code Core} recycles the
+ * message once every handler has received it, so handlers must copy any
+ * data they need to keep. Messages that were not obtained from a pool are
+ * not recycled.
+ * </p>
+ * 
+ * @see		MessagePool
+ */
+public abstract class AbstractPooledMessage implements IMessage {
+
+    /**The pool to return this message to; null while the message is not in use.*/
+    MessagePool<?> pool;
+
+    /**
+     * Clears the data of this message before it is returned to its pool.
+     */
+    protected abstract void reset();
+
+    /**
+     * Returns this message to the pool it was obtained from.
+     * 
+     * <p>
+     * Called automatically by {@code Core} after the message is sent.
+     * Recycling a message more than once has no effect.
+     * </p>
+     */
+    public void recycle() {
+        MessagePool<?> pool = this.pool;
+        if (pool == null) {
+            return;
+        }
+        this.pool = null;
+        reset();
+        pool.release(this);
+    }
+}
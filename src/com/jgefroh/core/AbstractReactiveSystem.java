@@ -0,0 +1,29 @@
+package com.jgefroh.core;
+
+import java.util.List;
+
+
+/**
+ * An abstract reactive system that provides basic functionality.
+ * 
+ * 
+ * <p>Extend this {@code System} and override only the callbacks you need.</p>
+ */
+public abstract class AbstractReactiveSystem extends AbstractSystem implements IReactiveSystem {
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    @Override
+    public void onAdded(final Class<? extends IInfoPack> packType, final List<IEntity> entities) {
+    }
+
+    @Override
+    public void onRemoved(final Class<? extends IInfoPack> packType, final List<IEntity> entities) {
+    }
+
+    @Override
+    public void onChanged(final Class<? extends IComponent> componentType, final List<IEntity> entities) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.jgefroh.core;
+
+import java.util.Iterator;
+
+
+/**
+ * An abstract system that processes only the entities due this tick.
+ *
+ *
+ * <p>
+ * Each execution processes the entities that can use the pack type and
+ * whose update tier is due, passing the time since each was last due, so
+ * an entity updated every 16th tick advances by 16 ticks' worth of time.
+ * Tiers are decided by the relevance function set on {@code Core}; without
+ * one, every entity is processed every execution.
+ * </p>
+ *
+ * <p>
+ * The system should run every tick (no wait), since entities are only due
+ * on the tick their tier comes up.
+ * </p>
+ * @see Core#setRelevanceFunction(IRelevanceFunction)
+ */
+public abstract class AbstractTieredSystem extends AbstractSystem {
+
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The Core that holds the entities.*/
+    private final Core core;
+
+    /**The type of pack the entities must be able to use.*/
+    private final Class<? extends IInfoPack> packType;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate a system that processes the due entities
+     * that can use the passed pack type.
+     * @param core      the Core that holds the entities
+     * @param packType  the type of pack the entities must be able to use
+     */
+    public AbstractTieredSystem(final Core core, final Class<? extends IInfoPack> packType) {
+        this.core = core;
+        this.packType = packType;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    @Override
+    public final void work(final long now) {
+        Iterator<IEntity> entities = core.getDueEntitiesWithPack(packType);
+
+        while (entities.hasNext()) {
+            IEntity entity = entities.next();
+            process(entity, core.getDelta(entity), now);
+        }
+    }
+
+    /**
+     * Processes a single due entity.
+     * @param entity    the entity to process
+     * @param delta     the time since the entity was last processed, in ms
+     * @param now       the current time, in ms
+     */
+    protected abstract void process(final IEntity entity, final long delta, final long now);
+}
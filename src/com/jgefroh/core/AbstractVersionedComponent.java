@@ -0,0 +1,229 @@
+package com.jgefroh.core;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * A component that records which of its fields changed.
+ * 
+ * <p>
+ * Call {@link #markChanged(int)} from every setter with the number of the
+ * field being set, from 0 to 63. The field's bit is set in the change mask,
+ * and the first change of each version tells the {@code Core} tracking the
+ * owner, as {@link Core#markChanged(IEntity, Class)} would. Reactive systems,
+ * the state hash and {@link Core#getEntitiesChangedSince(Class, long)} then
+ * see the change without rescanning.
+ * </p>
+ * <pre>
+ * public void setX(final float x) {
+ *     this.x = x;
+ *     markChanged(X);
+ * }
+ * </pre>
+ * <p>
+ * The change mask accumulates until {@link #clearChangeMask()} is called.
+ * Changes are also recorded in a separate replication mask, so a subclass
+ * that implements {@link IReplicatedComponent} can be replicated without the
+ * {@link Replicator} clearing the change mask. Components must
+ * only be changed from the tick thread, and stop telling a Core once they
+ * are removed from their owner.
+ * </p>
+ * <p>
+ * The world-state hash of {@code Core} uses {@link #hashState()}, which
+ * hashes the field values, so versioned components do not need to override
+ * {@code hashCode()}.
+ * </p>
+ */
+public abstract class AbstractVersionedComponent extends AbstractComponent {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The Core tracking the owner; null if the owner is not tracked.*/
+    private transient Core core;
+
+    /**The fields changed since the mask was last cleared, one bit per field.*/
+    private transient long changeMask;
+
+    /**The fields changed since the Replicator last took them, one bit per field.*/
+    private transient long replicationMask;
+
+    /**The version of the last change; 0 if never changed.*/
+    private transient long version;
+
+    /**Holds the hashed fields of each subclass, sorted by name.*/
+    private static final ClassValue<Field[]> HASHED_FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(final Class<?> type) {
+            List<Field> fields = new ArrayList<Field>();
+            for (Class<?> each = type; each != AbstractVersionedComponent.class; each = each.getSuperclass()) {
+                for (Field field : each.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            Collections.sort(fields, new Comparator<Field>() {
+                @Override
+                public int compare(final Field a, final Field b) {
+                    int order = a.getName().compareTo(b.getName());
+                    return order != 0 ? order : a.getDeclaringClass().getName().compareTo(b.getDeclaringClass().getName());
+                }
+            });
+            return fields.toArray(new Field[fields.size()]);
+        }
+    };
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    /**
+     * Gets the fields changed since the mask was last cleared.
+     * @return  a bit set of the changed field numbers
+     */
+    public long getChangeMask() {
+        return this.changeMask;
+    }
+
+    /**
+     * Gets the fields changed since the {@link Replicator} last took them.
+     * @return  a bit set of the changed field numbers
+     */
+    public long getReplicationMask() {
+        return this.replicationMask;
+    }
+
+    /**
+     * Checks to see if the field changed since the mask was last cleared.
+     * @param field the number of the field
+     * @return      true if the field changed; false otherwise
+     */
+    public boolean isChanged(final int field) {
+        return (changeMask & (1L << field)) != 0;
+    }
+
+    /**
+     * Gets the version of {@code Core} when this component last changed.
+     * @return  the version; 0 if never changed while tracked
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Records that the field changed.
+     * @param field the number of the field, from 0 to 63
+     */
+    protected void markChanged(final int field) {
+        changeMask |= 1L << field;
+        replicationMask |= 1L << field;
+
+        Core core = this.core;
+        if (core != null) {
+            long current = core.getVersion();
+            if (version != current) {
+                version = current;
+                core.markChanged(getOwner(), getClass());
+            }
+        }
+    }
+
+    /**
+     * Computes a hash of the field values that is the same across runs.
+     * 
+     * <p>
+     * By default every field declared by the subclasses that is neither
+     * static nor transient is hashed, by reflection. Strings, boxed values,
+     * enums and arrays of them hash by value; other objects use their
+     * {@code hashCode()}. Override to hash the fields directly.
+     * </p>
+     * @return  the hash of the field values
+     */
+    protected long hashState() {
+        long hash = 0;
+        for (Field field : HASHED_FIELDS.get(getClass())) {
+            try {
+                hash = hash * 0x9E3779B97F4A7C15L + hashValue(field.get(this));
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException("Could not read field: " + field, e);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes a single field value so the result is the same across runs.
+     * @param value the value of the field
+     * @return      the hash of the value
+     */
+    private static long hashValue(final Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Double) {
+            return Double.doubleToLongBits((Double) value);
+        }
+        if (value instanceof Float) {
+            return Float.floatToIntBits((Float) value);
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Boolean) {
+            return ((Boolean) value) ? 1 : 2;
+        }
+        if (value instanceof Character) {
+            return (Character) value;
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name().hashCode();
+        }
+        if (value.getClass().isArray()) {
+            long hash = 0;
+            for (int i = 0; i < Array.getLength(value); i++) {
+                hash = hash * 31 + hashValue(Array.get(value, i));
+            }
+            return hash;
+        }
+        return value.hashCode();
+    }
+
+    /**
+     * Forgets the changed fields.
+     */
+    public void clearChangeMask() {
+        this.changeMask = 0;
+    }
+
+    /**
+     * Forgets the fields changed since the {@link Replicator} last took them.
+     */
+    public void clearReplicationMask() {
+        this.replicationMask = 0;
+    }
+
+    /**
+     * Sets the Core that is told about changes.
+     * @param core  the Core tracking the owner; null to stop telling
+     */
+    void bind(final Core core) {
+        this.core = core;
+    }
+}
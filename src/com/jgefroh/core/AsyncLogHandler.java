@@ -0,0 +1,274 @@
+package com.jgefroh.core;
+
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+
+
+/**
+ * A log handler that writes records on a background thread.
+ * 
+ * <p>
+ * Records are placed in a bounded buffer and written to the console by a
+ * daemon thread, so logging never blocks the caller on I/O. Records are
+ * dropped when the buffer is full.
+ * </p>
+ * 
+ * <p>
+ * Repeats of the same message with the same parameters from the same
+ * logger are suppressed for a short window; the number of suppressed
+ * repeats is reported with the next record of that message that gets
+ * through. Records of one template with different parameters are distinct. Only the most recently seen
+ * messages are remembered, so messages that embed changing values cannot
+ * grow the handler without bound.
+ * </p>
+ */
+public class AsyncLogHandler extends Handler {
+	//////////
+	// DATA
+	//////////
+	/**The default number of records the buffer can hold.*/
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**The number of distinct messages whose repeats are tracked.*/
+	public static final int MAX_SUPPRESSIONS = 1024;
+
+	/**The default time, in ms, that repeated messages are suppressed.*/
+	public static final long DEFAULT_SUPPRESSION_WINDOW = 1000;
+
+	/**The records waiting to be written.*/
+	private final BlockingQueue<LogRecord> buffer;
+
+	/**Writes the records.*/
+	private final Handler delegate;
+
+	/**Holds the suppression state of each message, sorted by logger and message, least recently seen first.*/
+	private final Map<String, Suppression> suppressions;
+
+	/**The time, in ms, that repeated messages are suppressed; 0 to disable.*/
+	private volatile long suppressionWindow = DEFAULT_SUPPRESSION_WINDOW;
+
+	/**The number of records dropped because the buffer was full.*/
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**The thread that writes the records.*/
+	private final Thread writer;
+
+
+	//////////
+	// INIT
+	//////////
+	/**
+	 * Creates a handler that writes to the console.
+	 */
+	public AsyncLogHandler() {
+		this(new ConsoleHandler(), DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a handler that writes to the passed handler.
+	 * @param delegate	the handler that writes the records
+	 * @param capacity	the number of records the buffer can hold
+	 */
+	public AsyncLogHandler(final Handler delegate, final int capacity) {
+		this.delegate = delegate;
+		this.buffer = new ArrayBlockingQueue<LogRecord>(capacity);
+		this.suppressions = new LinkedHashMap<String, Suppression>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Suppression> eldest) {
+				return size() > MAX_SUPPRESSIONS;
+			}
+		};
+
+		this.writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "AsyncLogHandler");
+		this.writer.setDaemon(true);
+		this.writer.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				flush();
+			}
+		});
+	}
+
+
+	//////////
+	// LOGIC
+	//////////
+	@Override
+	public void publish(final LogRecord record) {
+		if (record == null || !isLoggable(record)) {
+			return;
+		}
+
+		if (suppressionWindow > 0 && isSuppressed(record)) {
+			return;
+		}
+
+		if (!buffer.offer(record)) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void flush() {
+		LogRecord record;
+		while ((record = buffer.poll()) != null) {
+			write(record);
+		}
+		delegate.flush();
+	}
+
+	@Override
+	public void close() {
+		flush();
+		writer.interrupt();
+		delegate.close();
+	}
+
+	/**
+	 * Writes records until the thread is interrupted.
+	 */
+	private void drain() {
+		try {
+			while (true) {
+				LogRecord record = buffer.take();
+				write(record);
+
+				if (buffer.isEmpty()) {
+					delegate.flush();
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes the record, noting any records that were dropped before it.
+	 * @param record	the record to write
+	 */
+	private void write(final LogRecord record) {
+		long lost = dropped.getAndSet(0);
+		if (lost > 0) {
+			delegate.publish(new LogRecord(record.getLevel(), lost + " log records were dropped."));
+		}
+		delegate.publish(record);
+	}
+
+	/**
+	 * Checks to see if the record repeats a recently written message with the same parameters.
+	 * 
+	 * <p>
+	 * The first record of a message after the window passes is let through
+	 * and reports the number of repeats that were suppressed.
+	 * </p>
+	 * @param record	the record to check
+	 * @return			true if the record should be suppressed; false otherwise
+	 */
+	private boolean isSuppressed(final LogRecord record) {
+		String key = record.getLoggerName() + ':' + record.getMessage();
+		Object[] parameters = record.getParameters();
+		if (parameters != null && parameters.length > 0) {
+			key += Arrays.toString(parameters);
+		}
+		Suppression suppression;
+
+		synchronized (suppressions) {
+			suppression = suppressions.get(key);
+			if (suppression == null) {
+				suppressions.put(key, new Suppression(record.getMillis()));
+				return false;
+			}
+		}
+
+		int repeats;
+		synchronized (suppression) {
+			if (record.getMillis() - suppression.windowStart < suppressionWindow) {
+				suppression.count++;
+				return true;
+			}
+			repeats = suppression.count;
+			suppression.windowStart = record.getMillis();
+			suppression.count = 0;
+		}
+
+		if (repeats > 0) {
+			LogRecord summary = new LogRecord(record.getLevel(), "Suppressed " + repeats + " repeats of: " + record.getMessage());
+			summary.setLoggerName(record.getLoggerName());
+			summary.setParameters(record.getParameters());
+			buffer.offer(summary);
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the time that repeated messages are suppressed.
+	 * @param suppressionWindow	the time, in ms; 0 to disable suppression
+	 */
+	public void setSuppressionWindow(final long suppressionWindow) {
+		this.suppressionWindow = suppressionWindow;
+	}
+
+	/**
+	 * Gets the number of records dropped since the last record was written.
+	 * @return	the number of dropped records
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Waits until the buffer has been drained.
+	 * @param timeout	the maximum time to wait, in ms
+	 * @return			true if the buffer is empty; false if the time ran out
+	 * @throws InterruptedException	if interrupted while waiting
+	 */
+	public boolean awaitDrained(final long timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		while (!buffer.isEmpty()) {
+			if (System.nanoTime() > deadline) {
+				return false;
+			}
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+
+	//////////
+	// HELPERS
+	//////////
+	/**
+	 * The suppression state of a single message.
+	 */
+	private static class Suppression {
+		/**The time the current window started, in ms.*/
+		private long windowStart;
+
+		/**The number of repeats suppressed in the current window.*/
+		private int count;
+
+		public Suppression(final long windowStart) {
+			this.windowStart = windowStart;
+		}
+	}
+}
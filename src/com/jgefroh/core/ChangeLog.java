@@ -0,0 +1,130 @@
+package com.jgefroh.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+
+/**
+ * The entities that changed over the recent versions of {@code Core}.
+ * 
+ * <p>
+ * Entries are appended in version order and dropped once they fall outside
+ * the history, so a query walks only the entries newer than the version it
+ * asks about.
+ * </p>
+ * 
+ * @see Core#getEntitiesChangedSince(Class, long)
+ */
+class ChangeLog {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The entities that changed, oldest first.*/
+    private IEntity[] entities = new IEntity[16];
+
+    /**The version of each change.*/
+    private long[] versions = new long[16];
+
+    /**The position of the oldest retained change.*/
+    private int start;
+
+    /**The position after the newest change.*/
+    private int end;
+
+    /**The newest version whose changes were dropped; 0 if none were.*/
+    private long dropped;
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Records that the entity changed.
+     * @param entity    the entity that changed
+     * @param version   the version of the change
+     */
+    void record(final IEntity entity, final long version) {
+        if (end > 0 && entities[end - 1] == entity && versions[end - 1] == version) {
+            return;
+        }
+
+        if (end == entities.length) {
+            if (start > entities.length / 2) {
+                int size = end - start;
+                System.arraycopy(entities, start, entities, 0, size);
+                System.arraycopy(versions, start, versions, 0, size);
+                Arrays.fill(entities, size, end, null);
+                start = 0;
+                end = size;
+            }
+            else {
+                entities = Arrays.copyOf(entities, entities.length * 2);
+                versions = Arrays.copyOf(versions, versions.length * 2);
+            }
+        }
+        entities[end] = entity;
+        versions[end] = version;
+        end++;
+    }
+
+    /**
+     * Drops the changes made at or before the passed version.
+     * @param version   the newest version to drop
+     */
+    void dropThrough(final long version) {
+        while (start < end && versions[start] <= version) {
+            entities[start] = null;
+            start++;
+        }
+        if (start == end) {
+            start = 0;
+            end = 0;
+        }
+        dropped = Math.max(dropped, version);
+    }
+
+    /**
+     * Drops every change.
+     * @param version   the current version
+     */
+    void clear(final long version) {
+        Arrays.fill(entities, start, end, null);
+        start = 0;
+        end = 0;
+        dropped = version;
+    }
+
+    /**
+     * Checks to see if every change after the passed version is still retained.
+     * @param version   the version to check
+     * @return          true if the log can answer for the version; false otherwise
+     */
+    boolean covers(final long version) {
+        return version >= dropped;
+    }
+
+    /**
+     * Adds the entities that changed after the passed version to the collection, once each.
+     * @param version   the version to start after
+     * @param result    the collection to add to, in the order the entities first changed
+     */
+    void collect(final long version, final Collection<IEntity> result) {
+        int first = end;
+        while (first > start && versions[first - 1] > version) {
+            first--;
+        }
+
+        Set<IEntity> seen = Collections.newSetFromMap(new IdentityHashMap<IEntity, Boolean>());
+        for (int i = first; i < end; i++) {
+            if (seen.add(entities[i])) {
+                result.add(entities[i]);
+            }
+        }
+    }
+}
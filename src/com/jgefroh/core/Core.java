@@ -2,12 +2,19 @@ package com.jgefroh.core;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,16 +41,103 @@ public class Core {
     private Map<Class<? extends IInfoPack>, IInfoPack> infoPacksByType;
 
     /**Holds the systems.*/
-    private List<ISystem> systems;
+    private SystemRegistry systems;
 
-    /**Holds the entities, sorted by ID.*/
+    /**Holds the entities, sorted by ID and iterated in the order they were added.*/
     private Map<String, IEntity> entitiesByID;
 
-    /**Holds the entities, sorted by ID.*/
-    private Map<Class<? extends IInfoPack>, List<IEntity>> entitiesByPack;
+    /**Holds the entities, sorted by the pack types they can use.*/
+    private Map<Class<? extends IInfoPack>, Set<IEntity>> entitiesByPack;
 
-    /**Holds a list of message handlers stored by message type.*/
-    private Map<Class<? extends IMessage>, List<IMessageHandler<? extends IMessage>>> handlersByMessage;
+    /**Holds the pack types whose entities are still being evaluated, in the order they were added.*/
+    private Map<Class<? extends IInfoPack>, PackIndexBuild> packBuilds;
+
+    /**The number of existing entities evaluated per tick against newly added pack types.*/
+    private int packBuildBudget = 8192;
+
+    /**Holds the update tier of each entity; null if every entity is updated every tick.*/
+    private UpdateTiers tiers;
+
+    /**The number of ticks between updates in each tier.*/
+    private int[] tierDivisors = {1, 4, 16};
+
+    /**The number of entities whose tier is re-evaluated per tick.*/
+    private int tierBudget = 1024;
+
+    /**The time the current tick started, in ms.*/
+    private long tickStart;
+
+    /**The time between the starts of the previous tick and the current tick, in ms.*/
+    private long tickDelta;
+
+    /**Holds evicted entities; null if entities are never evicted.*/
+    private IEntityStore entityStore;
+
+    /**The number of entities kept in memory before dormant ones are evicted; 0 for no limit.*/
+    private int residentLimit;
+
+    /**Holds the entities used since the eviction sweep last passed them.*/
+    private Set<IEntity> referencedEntities;
+
+    /**FLAG: Indicates whether entities are being evicted or loaded, which reactive systems are not told about.*/
+    private boolean isPaging;
+
+    /**Holds the entities loaded by ID that are tracked at the start of the next tick, sorted by ID.*/
+    private Map<String, IEntity> loadedByID;
+
+    /**Holds the sorted views of each pack type.*/
+    private Map<Class<? extends IInfoPack>, List<SortedPackView>> viewsByPack;
+
+    /**Holds the parent of each child entity.*/
+    private Map<IEntity, IEntity> parentsByChild;
+
+    /**Holds the children of each parent entity, in the order they were attached.*/
+    private Map<IEntity, List<IEntity>> childrenByParent;
+
+    /**Holds the depth-first snapshots that were built, sorted by root entity.*/
+    private Map<IEntity, Hierarchy> hierarchiesByRoot;
+
+    /**Shared by message types without handlers.*/
+    private static final IMessageHandler<?>[] NO_HANDLERS = new IMessageHandler<?>[0];
+
+    /**Shared by entities that do not expose their components.*/
+    private static final IComponent[] NO_COMPONENTS = new IComponent[0];
+
+    /**Shared by empty sweeps.*/
+    private static final IEntity[] NO_ENTITIES = new IEntity[0];
+
+    /**Holds the message handlers, indexed by the message type's index in {@link TypeRegistry#MESSAGES}.*/
+    private IMessageHandler<?>[][] handlersByMessage;
+
+    /**Holds the entities added to each pack since the last tick.*/
+    private Map<Class<? extends IInfoPack>, Set<IEntity>> addedByPack;
+
+    /**Holds the entities removed from each pack since the last tick.*/
+    private Map<Class<? extends IInfoPack>, Set<IEntity>> removedByPack;
+
+    /**Holds the entities marked as changed since the last tick, sorted by component type.*/
+    private Map<Class<? extends IComponent>, List<IEntity>> changedByComponent;
+
+    /**Holds the pack additions being delivered, so reactions can record new changes.*/
+    private Map<Class<? extends IInfoPack>, Set<IEntity>> deliveringAdded;
+
+    /**Holds the pack removals being delivered, so reactions can record new changes.*/
+    private Map<Class<? extends IInfoPack>, Set<IEntity>> deliveringRemoved;
+
+    /**Holds the component changes being delivered, so reactions can record new changes.*/
+    private Map<Class<? extends IComponent>, List<IEntity>> deliveringChanged;
+
+    /**Holds the pack transitions of a single pack type while they are delivered.*/
+    private final List<IEntity> reacting = new ArrayList<IEntity>();
+
+    /**The current version; advanced every tick and at every checkpoint.*/
+    private final AtomicLong version = new AtomicLong(1);
+
+    /**Holds the entities that changed over the recent versions.*/
+    private ChangeLog changeLog;
+
+    /**The number of versions changes are kept for; 0 to keep none.*/
+    private long changeHistory;
 
     /**The last ID that was assigned to an entity.*/
     private long lastID;
@@ -54,6 +148,30 @@ public class Core {
     /**Used to provide accurate timing.*/
     private long timeLastChecked;
 
+    /**The source of time.*/
+    private IClock clock;
+
+    /**FLAG: Indicates whether the world-state hash is kept up to date.*/
+    private boolean isHashingState;
+
+    /**The combined hash of all tracked entities.*/
+    private long stateHash;
+
+    /**Holds the last hash of each entity included in the state hash.*/
+    private Map<IEntity, Long> hashesByEntity;
+
+    /**Holds the entities whose hash needs to be recomputed.*/
+    private Set<IEntity> entitiesToHash;
+
+    /**The number of entities rehashed each tick to catch changes that were not marked; 0 to disable.*/
+    private int hashSweepBudget = 1024;
+
+    /**The entities being swept for unmarked changes, as of the start of the sweep.*/
+    private IEntity[] hashSweep = NO_ENTITIES;
+
+    /**The position of the next entity to sweep.*/
+    private int hashSweepCursor;
+
     /**FLAG: Indicates whether Core should pause execution or not.*/
     private boolean isPaused; //TODO: Implement
 
@@ -65,12 +183,37 @@ public class Core {
 
 
     public Core() {
-        infoPacksByType = new HashMap<Class<? extends IInfoPack>, IInfoPack>();
-        systems = new ArrayList<ISystem>();
-        entitiesByID = new HashMap<String, IEntity>();
-        entitiesByPack = new HashMap<Class<? extends IInfoPack>, List<IEntity>>();
-        handlersByMessage = new HashMap<Class<? extends IMessage>, List<IMessageHandler<? extends IMessage>>>();
-        this.timeLastChecked = System.nanoTime();
+        this(new SystemClock());
+    }
+
+    /**
+     * Constructor to instantiate a Core that takes its time from the passed clock.
+     * @param clock the source of time
+     */
+    public Core(final IClock clock) {
+        infoPacksByType = new LinkedHashMap<Class<? extends IInfoPack>, IInfoPack>();
+        systems = new SystemRegistry();
+        entitiesByID = new LinkedHashMap<String, IEntity>();
+        entitiesByPack = new LinkedHashMap<Class<? extends IInfoPack>, Set<IEntity>>();
+        handlersByMessage = new IMessageHandler<?>[0][];
+        packBuilds = new LinkedHashMap<Class<? extends IInfoPack>, PackIndexBuild>();
+        viewsByPack = new HashMap<Class<? extends IInfoPack>, List<SortedPackView>>();
+        referencedEntities = Collections.newSetFromMap(new IdentityHashMap<IEntity, Boolean>());
+        loadedByID = new LinkedHashMap<String, IEntity>();
+        parentsByChild = new IdentityHashMap<IEntity, IEntity>();
+        childrenByParent = new IdentityHashMap<IEntity, List<IEntity>>();
+        hierarchiesByRoot = new IdentityHashMap<IEntity, Hierarchy>();
+        addedByPack = new LinkedHashMap<Class<? extends IInfoPack>, Set<IEntity>>();
+        removedByPack = new LinkedHashMap<Class<? extends IInfoPack>, Set<IEntity>>();
+        changedByComponent = new LinkedHashMap<Class<? extends IComponent>, List<IEntity>>();
+        deliveringAdded = new LinkedHashMap<Class<? extends IInfoPack>, Set<IEntity>>();
+        deliveringRemoved = new LinkedHashMap<Class<? extends IInfoPack>, Set<IEntity>>();
+        deliveringChanged = new LinkedHashMap<Class<? extends IComponent>, List<IEntity>>();
+        hashesByEntity = new IdentityHashMap<IEntity, Long>();
+        changeLog = new ChangeLog();
+        entitiesToHash = Collections.newSetFromMap(new IdentityHashMap<IEntity, Boolean>());
+        this.clock = clock;
+        this.timeLastChecked = clock.nanoTime();
         LOGGER.log(Level.INFO, "Core initialized.");
     }
 
@@ -95,28 +238,128 @@ public class Core {
 
         entitiesByID.put(entity.getID(), entity);
         updateInfoPacks(entity); //Generate info packs for this entity.
+
+        if (tiers != null) {
+            tiers.add(entity);
+        }
+
+        if (isHashingState) {
+            entitiesToHash.add(entity);
+        }
+    }
+
+    /**
+     * Installs a configuration validated by {@link CoreBuilder} before the first tick.
+     * @param systems       the systems, in the order they are executed
+     * @param packs         the packs
+     * @param members       the positions of the entities that can use each pack, in pack order
+     * @param handlers      the message handlers, sorted by message type
+     * @param entities      the entities, with IDs assigned
+     * @param lastID        the last ID that was generated
+     */
+    void load(final ISystem[] systems, final IInfoPack[] packs, final int[][] members,
+            final Map<Class<? extends IMessage>, IMessageHandler<?>[]> handlers, final IEntity[] entities, final long lastID) {
+        this.systems.addAll(systems);
+
+        int size = handlersByMessage.length;
+        for (Class<? extends IMessage> type : handlers.keySet()) {
+            size = Math.max(size, TypeRegistry.MESSAGES.indexOf(type) + 1);
+        }
+        handlersByMessage = Arrays.copyOf(handlersByMessage, size);
+        for (Map.Entry<Class<? extends IMessage>, IMessageHandler<?>[]> each : handlers.entrySet()) {
+            handlersByMessage[TypeRegistry.MESSAGES.indexOf(each.getKey())] = each.getValue();
+        }
+
+        for (IEntity each : entities) {
+            entitiesByID.put(each.getID(), each);
+            bindComponents(each, this);
+            each.setChanged(false);
+        }
+
+        for (int i = 0; i < packs.length; i++) {
+            Class<? extends IInfoPack> packType = packs[i].getClass();
+            infoPacksByType.put(packType, packs[i]);
+            entitiesByPack.put(packType, new LinkedHashSet<IEntity>(Math.max(16, members[i].length * 4 / 3 + 1)));
+
+            for (int index : members[i]) {
+                allowEntityToUsePack(entities[index], packType);
+            }
+        }
+        this.lastID = lastID;
+        LOGGER.log(Level.INFO, "Core loaded {0} entities.", entities.length);
     }
 
     /**
      * Begins tracking the passed {@code IInfoPack} type.
+     * 
+     * 
+     * <br />Entities that are already tracked are evaluated against the pack
+     * over the following ticks; see {@link #isPackReady(Class)}.
+     * <br />Entities added or changed in the meantime are evaluated right away.
+     * <br />Large batches call {@code checkComponents} from several threads, so it must not change the pack.
      * @param newPack	the pack to track
      */
     public <T extends IInfoPack> void addInfoPack(final T newPack) {
         infoPacksByType.put(newPack.getClass(), newPack);
+
+        if (entitiesByID.isEmpty()) {
+            packBuilds.remove(newPack.getClass());
+        }
+        else {
+            packBuilds.put(newPack.getClass(), new PackIndexBuild(newPack, entitiesByID.values()));
+        }
     }
 
     /**
-     * Begins tracking the passed System.
+     * Checks to see if every entity has been evaluated against the pack type.
+     * @param packType  the type of pack
+     * @return  true if the pack is tracked and its entities are complete; false otherwise
+     */
+    public <T extends IInfoPack> boolean isPackReady(final Class<T> packType) {
+        return infoPacksByType.containsKey(packType) && !packBuilds.containsKey(packType);
+    }
+
+    /**
+     * Sets the number of existing entities evaluated per tick against newly added pack types.
+     * 
+     * 
+     * Large batches are split across all available processors.
+     * @param packBuildBudget   the number of entities; at least 1
+     */
+    public void setPackBuildBudget(final int packBuildBudget) {
+        this.packBuildBudget = Math.max(1, packBuildBudget);
+    }
+
+    /**
+     * Begins tracking, initializes and starts the passed System.
+     * 
+     * 
+     * If called during {@link #work()}, the system is added once the tick ends.
      * @param system	the system to track
      */
     public void addSystem(final ISystem system) {
         if (system == null || systems.contains(system) == true) {
-            LOGGER.log(Level.WARNING, "Couldn't add system: " + system);
+            LOGGER.log(Level.WARNING, "Could not add system: {0}", system);
             return;
         }
-
         systems.add(system);
-        system.start();
+    }
+
+    /**
+     * Replaces a tracked System with another, keeping its position and schedule.
+     * 
+     * 
+     * <br />The old system is stopped and the new system is initialized and started.
+     * <br />If called during {@link #work()}, the swap happens once the tick ends.
+     * @param system        the system to replace
+     * @param replacement   the system to take its place
+     */
+    public void replaceSystem(final ISystem system, final ISystem replacement) {
+        if (system == null || replacement == null || systems.contains(replacement)) {
+            LOGGER.log(Level.WARNING, "Could not replace system: {0}", system);
+            return;
+        }
+        systems.replace(system, replacement);
     }
 
     /**
@@ -145,20 +388,91 @@ public class Core {
 
     /**
      * Returns the entity with the passed ID.
+     * 
+     * 
+     * An evicted entity is loaded from the entity store, but is only tracked
+     * again, and added to its packs, at the start of the next tick. This keeps
+     * lookups safe while the entities or a pack are being iterated.
      * @param id	the ID of the entity to retrieve
      * @return		the entity with the ID if found; null otherwise
      */
     public IEntity getEntityWithID(final String id) {
+        IEntity entity = entitiesByID.get(id);
+
+        if (entityStore != null) {
+            if (entity == null) {
+                return loadEvicted(id);
+            }
+            referencedEntities.add(entity);
+        }
+        return entity;
+    }
+
+    /**
+     * Gets the tracked entity with the passed ID without loading evicted
+     * entities or marking the entity as used.
+     * @param id    the ID of the entity
+     * @return      the tracked entity with the ID if found; null otherwise
+     */
+    IEntity getTrackedEntity(final String id) {
         return entitiesByID.get(id);
     }
 
+    /**
+     * Loads the evicted entity with the passed ID, to be tracked at the start of the next tick.
+     * @param id    the ID of the entity
+     * @return      the loaded entity if found; null otherwise
+     */
+    private IEntity loadEvicted(final String id) {
+        IEntity entity = loadedByID.get(id);
+
+        if (entity == null && entityStore.contains(id)) {
+            entity = entityStore.load(id);
+            if (entity != null) {
+                loadedByID.put(id, entity);
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Tracks the entities loaded by ID since the last tick.
+     */
+    private void trackLoaded() {
+        isPaging = true;
+        try {
+            for (IEntity each : loadedByID.values()) {
+                addEntity(each);
+                if (entitiesByID.get(each.getID()) == each) {
+                    referencedEntities.add(each);
+                }
+            }
+        }
+        finally {
+            isPaging = false;
+        }
+        loadedByID.clear();
+    }
+
+    /**
+     * Gets all tracked entities.
+     * @return	an iterator with the entities, in the order they were added
+     */
+    public Iterator<IEntity> getEntities() {
+        return Collections.unmodifiableCollection(entitiesByID.values()).iterator();
+    }
+
     /**
      * Gets all entities that can use the passed IInfoPack type.
+     * 
+     * 
+     * Every entity is returned, whether or not it is due this tick; update
+     * tiers are opt-in, through {@link #getDueEntitiesWithPack(Class)}.
      * @param type	the type of IInfoPack that the entities can use
      * @return	an iterator with the IEntity objects that can use the pack
      */
     public Iterator<IEntity> getEntitiesWithPack(final Class<? extends IInfoPack> type) {
-        List<IEntity> entities = entitiesByPack.get(type);
+        Set<IEntity> entities = entitiesByPack.get(type);
 
         if (entities == null) {
             return Collections.<IEntity> emptyList().iterator();
@@ -169,12 +483,15 @@ public class Core {
 
     /**
      * Gets the IInfoPack of the passed type ready to be used on an entity with the passed ID.
+     * 
+     * 
+     * Evicted entities are loaded as by {@link #getEntityWithID(String)}.
      * @param id	the ID of the entity
      * @param type	the type of IInfoPack
      * @return	an IInfoPack ready to be used with the entity if found; null otherwise
      */
     public <T extends IInfoPack> T getInfoPackFrom(final String id, Class<T> type) {
-        IEntity entity = entitiesByID.get(id);
+        IEntity entity = getEntityWithID(id);
         IInfoPack pack = infoPacksByType.get(type);
 
         if (entity != null && pack != null) {
@@ -205,16 +522,7 @@ public class Core {
      * @return  the system if found; null otherwise
      */
     public <T extends ISystem> T getSystem(final Class<T> type) {
-        Iterator<ISystem> sysIter = systems.iterator();
-
-        while (sysIter.hasNext()) {
-            ISystem system = sysIter.next();
-
-            if (system.getClass() == type) {
-                return (T) system;
-            }
-        }
-        return null;
+        return (T) systems.get(type);
     }
 
     /**
@@ -243,11 +551,16 @@ public class Core {
                 allowEntityToUsePack(entity, pack.getClass());
             }
         }
+        bindComponents(entity, this);
+        recordChange(entity);
         entity.setChanged(false);
     }
 
     /**
      * Generates a previously ungenerated ID.
+     * 
+     * 
+     * IDs are generated in sequence, so the same seed always produces the same IDs.
      * @return	a unique ID
      */
     public String generateID() {
@@ -256,16 +569,69 @@ public class Core {
     }
 
     /**
-     * Stops tracking the passed Entity.
+     * Sets the value that generated IDs continue from.
+     * @param seed  the value before the next generated ID
+     */
+    public void setIDSeed(final long seed) {
+        this.lastID = seed;
+    }
+
+    /**
+     * Stops tracking the passed Entity and all of its descendants.
+     * 
+     * 
+     * Descendants are removed deepest first, walking the depth-first order
+     * backwards, so deep chains do not recurse.
      * @param entity	the entity to stop tracking
      */
     public void removeEntity(final IEntity entity) {
         if (entity == null) {
             return;
         }
+
+        if (childrenByParent.containsKey(entity)) {
+            Hierarchy descendants = new Hierarchy(entity, childrenByParent);
+            for (int i = descendants.size() - 1; i > 0; i--) {
+                removeSingle(descendants.getEntity(i));
+            }
+        }
+        removeSingle(entity);
+    }
+
+    /**
+     * Stops tracking the passed Entity, which must not have children.
+     * @param entity    the entity to stop tracking
+     */
+    private void removeSingle(final IEntity entity) {
+        setParent(entity, null);
+
+        bindComponents(entity, null);
         entity.removeAllComponents();
         updateInfoPacks(entity);
+        untrack(entity);
+    }
+
+    /**
+     * Stops tracking the entity without touching its components.
+     * @param entity    the entity to stop tracking
+     */
+    private void untrack(final IEntity entity) {
         entitiesByID.remove(entity.getID());
+        loadedByID.remove(entity.getID());
+        referencedEntities.remove(entity);
+        hierarchiesByRoot.remove(entity);
+
+        if (tiers != null) {
+            tiers.remove(entity);
+        }
+
+        if (isHashingState) {
+            entitiesToHash.remove(entity);
+            Long hash = hashesByEntity.remove(entity);
+            if (hash != null) {
+                stateHash ^= hash;
+            }
+        }
     }
 
     /**
@@ -273,15 +639,38 @@ public class Core {
      * @param id    the id of the entity to stop tracking
      */
     public void removeEntity(final String id) {
-        removeEntity(entitiesByID.get(id));
+        if (entityStore != null) {
+            entityStore.remove(id);
+        }
+        IEntity loaded = loadedByID.remove(id);
+        removeEntity(loaded != null ? loaded : entitiesByID.get(id));
     }
 
     /**
      * Stops tracking all entities.
      */
     public void removeAllEntities() {
+        for (Class<? extends IInfoPack> packType : entitiesByPack.keySet()) {
+            clearEntitiesAllowedToUsePack(packType);
+        }
         entitiesByID.clear();
+        loadedByID.clear();
         entitiesByPack.clear();
+        packBuilds.clear();
+        changeLog.clear(version.get());
+
+        if (tiers != null) {
+            setRelevanceFunction(tiers.getFunction());
+        }
+        parentsByChild.clear();
+        childrenByParent.clear();
+        hierarchiesByRoot.clear();
+        hashesByEntity.clear();
+        entitiesToHash.clear();
+        hashSweep = NO_ENTITIES;
+        hashSweepCursor = 0;
+        referencedEntities.clear();
+        stateHash = 0;
     }
 
     /**
@@ -299,7 +688,10 @@ public class Core {
     }
 
     /**
-     * Removes a system.
+     * Stops and removes a system.
+     * 
+     * 
+     * If called during {@link #work()}, the system is removed once the tick ends.
      * @param system	the system to remove
      */
     public void removeSystem(final ISystem system) {
@@ -307,7 +699,12 @@ public class Core {
     }
 
     /**
-     * Removes all systems.
+     * Stops and removes all systems.
+     * 
+     * 
+     * <br />If called during {@link #work()}, the systems are removed once the tick ends.
+     * <br />Stopping an {@link AbstractAsyncSystem} shuts down its threads, so
+     * call this before discarding a Core that has async systems.
      */
     public void removeAllSystems() {
         systems.clear();
@@ -317,9 +714,19 @@ public class Core {
      * Executes the systems added to Core.
      */
     public void work() {
-        Iterator<ISystem> sysIter = systems.iterator();
         updateTimer();
         long now = now();
+        long current = version.incrementAndGet();
+        tickDelta = now - tickStart;
+        tickStart = now;
+
+        if (!loadedByID.isEmpty()) {
+            trackLoaded();
+        }
+
+        if (changeHistory > 0) {
+            changeLog.dropThrough(current - changeHistory);
+        }
 
         Collection<IEntity> entities = entitiesByID.values();
 
@@ -327,14 +734,94 @@ public class Core {
             if (each.hasChanged()) {
                 updateInfoPacks(each);
                 each.setChanged(false);
+
+                if (isHashingState) {
+                    entitiesToHash.add(each);
+                }
+                if (entityStore != null) {
+                    referencedEntities.add(each);
+                }
+            }
+        }
+
+        if (!packBuilds.isEmpty()) {
+            buildPackIndices();
+        }
+
+        if (entityStore != null && residentLimit > 0 && entitiesByID.size() > residentLimit) {
+            evictDormant();
+        }
+
+        for (List<SortedPackView> views : viewsByPack.values()) {
+            for (SortedPackView view : views) {
+                view.sort();
+            }
+        }
+
+        if (tiers != null) {
+            tiers.beginTick(now, tierBudget);
+        }
+
+        systems.setDeferring(true);
+        try {
+            dispatchReactions();
+
+            if (isHashingState) {
+                updateStateHash();
+            }
+
+            for (ISystem system : systems.getSystems()) {
+                if (system instanceof AbstractAsyncSystem && system.isRunning()) {
+                    ((AbstractAsyncSystem) system).collect();
+                }
+            }
+
+            for (ISystem system : systems.getSystems()) {
+                if (system.isRunning() && now - system.getLast() > system.getWait()) {
+                    system.setLast(now);
+                    system.work(now);
+                }
             }
         }
+        finally {
+            systems.setDeferring(false);
+        }
+    }
+
+    /**
+     * Evaluates the next window of existing entities against newly added pack types.
+     * 
+     * 
+     * Entities that stopped being tracked since the build began are skipped.
+     */
+    private void buildPackIndices() {
+        int remaining = packBuildBudget;
+        Iterator<PackIndexBuild> builds = packBuilds.values().iterator();
+
+        while (remaining > 0 && builds.hasNext()) {
+            PackIndexBuild build = builds.next();
+            Class<? extends IInfoPack> packType = build.getPack().getClass();
+            int start = build.evaluate(remaining);
+            int end = build.getCursor();
+
+            for (int i = start; i < end; i++) {
+                IEntity entity = build.getEntity(i);
+                if (entitiesByID.get(entity.getID()) != entity) {
+                    continue;
+                }
+
+                if (build.getResult(i)) {
+                    allowEntityToUsePack(entity, packType);
+                }
+                else {
+                    disallowEntityToUsePack(entity, packType);
+                }
+            }
+            remaining -= end - start;
 
-        while (sysIter.hasNext()) {
-            ISystem system = sysIter.next();
-            if (system.isRunning() && now - system.getLast() > system.getWait()) {
-                system.setLast(now);
-                system.work(now);
+            if (build.isDone()) {
+                builds.remove();
+                LOGGER.log(Level.FINE, "Pack is ready: {0}", packType.getSimpleName());
             }
         }
     }
@@ -348,15 +835,22 @@ public class Core {
         if (entity == null) {
             return;
         }
-        List<IEntity> entities = entitiesByPack.get(packType);
+        Set<IEntity> entities = entitiesByPack.get(packType);
 
         if (entities == null) {
-            entities = new ArrayList<IEntity>();
+            entities = new LinkedHashSet<IEntity>();
             entitiesByPack.put(packType, entities);
         }
 
-        if (!entities.contains(entity)) {
-            entities.add(entity);
+        if (entities.add(entity)) {
+            recordTransition(addedByPack, removedByPack, packType, entity);
+
+            List<SortedPackView> views = viewsByPack.get(packType);
+            if (views != null) {
+                for (SortedPackView view : views) {
+                    view.add(entity);
+                }
+            }
         }
     }
 
@@ -366,11 +860,21 @@ public class Core {
      * @param packType  the pack type to set
      */
     public <T extends IInfoPack> void disallowEntityToUsePack(final IEntity entity, final Class<T> packType) {
-        List<IEntity> entities = entitiesByPack.get(packType);
-        if (entities == null) {
+        Set<IEntity> entities = entitiesByPack.get(packType);
+        if (entities == null || entity == null) {
             return;
         }
-        entity.setChanged(true);
+
+        if (entities.remove(entity)) {
+            recordTransition(removedByPack, addedByPack, packType, entity);
+
+            List<SortedPackView> views = viewsByPack.get(packType);
+            if (views != null) {
+                for (SortedPackView view : views) {
+                    view.remove(entity);
+                }
+            }
+        }
     }
 
     /**
@@ -378,101 +882,1154 @@ public class Core {
      * @param packType  the type of pack
      */
     public <T extends IInfoPack> void clearEntitiesAllowedToUsePack(final Class<T> packType) {
-        List<IEntity> entities = entitiesByPack.get(packType);
+        Set<IEntity> entities = entitiesByPack.get(packType);
 
         if (entities != null) {
+            for (IEntity each : entities) {
+                recordTransition(removedByPack, addedByPack, packType, each);
+            }
             entities.clear();
         }
-    }
 
-    //////////////////////////////////////////////////
-    // Timer
-    //////////////////////////////////////////////////
-    /**
-     * Gets the current time of the simulation, in ms.
-     * @return	the current time, in ms
-     */
-    public long now() {
-        return this.timer / 1000000;
+        List<SortedPackView> views = viewsByPack.get(packType);
+        if (views != null) {
+            for (SortedPackView view : views) {
+                view.clear();
+            }
+        }
     }
 
     /**
-     * Update the timer.
+     * Creates a view of the entities that can use the passed pack type, kept in the comparator's order.
+     * 
+     * 
+     * The view is updated as entities are allowed and disallowed, and re-sorted at the start of every tick.
+     * @param packType      the type of pack
+     * @param comparator    decides the order of the entities
+     * @return  the sorted view
      */
-    private void updateTimer() {
-        long now = System.nanoTime();
-        if (isPaused == false) {
-            long timePassed = now - this.timeLastChecked;
-            this.timer += timePassed;
+    public <T extends IInfoPack> SortedPackView createSortedView(final Class<T> packType, final Comparator<IEntity> comparator) {
+        SortedPackView view = new SortedPackView(packType, comparator);
+        Set<IEntity> entities = entitiesByPack.get(packType);
+
+        if (entities != null) {
+            for (IEntity each : entities) {
+                view.add(each);
+            }
         }
-        timeLastChecked = now;
-    }
+        view.sort();
 
-    /**
-     * Checks to see if the desired amount of time has passed.
-     * @param now		the current time, in ms
-     * @param last		the time of last execution, in ms
-     * @param waitTime	the time to wait, in ms
-     * @return			true if the wait time has passed; false otherwise
-     */
-    public boolean isTime(final long now, final long last, final long waitTime) {
-        if (now - last >= waitTime) {
-            return true;
+        List<SortedPackView> views = viewsByPack.get(packType);
+        if (views == null) {
+            views = new ArrayList<SortedPackView>();
+            viewsByPack.put(packType, views);
         }
-        return false;
+        views.add(view);
+        return view;
     }
 
     /**
-     * Sets the flag that indicates non-critical systems are paused.
-     * @param isPaused	true if paused;false otherwise
+     * Stops updating the passed sorted view.
+     * @param view  the view to stop updating
      */
-    public void setPaused(final boolean isPaused) {
-        this.isPaused = isPaused;
+    public void removeSortedView(final SortedPackView view) {
+        if (view == null) {
+            return;
+        }
+        List<SortedPackView> views = viewsByPack.get(view.getPackType());
+
+        if (views != null) {
+            views.remove(view);
+            if (views.isEmpty()) {
+                viewsByPack.remove(view.getPackType());
+            }
+        }
     }
 
     /**
-     * Returns the flag that indicates that non-critical systems are paused.
-     * @return	true if paused; false otherwise
+     * Checks to see if the entity is currently allowed to use the pack type.
+     * @param entity    the entity to check
+     * @param packType  the type of pack
+     * @return  true if the entity can use the pack; false otherwise
      */
-    public boolean isPaused() {
-        return this.isPaused;
+    public <T extends IInfoPack> boolean isEntityAllowedToUsePack(final IEntity entity, final Class<T> packType) {
+        Set<IEntity> entities = entitiesByPack.get(packType);
+        return entities != null && entities.contains(entity);
     }
 
-
     //////////////////////////////////////////////////
-    // Message Passing
+    // Relationships
     //////////////////////////////////////////////////
-    
+
     /**
-     * Registers a handler for messages of the specified type.
-     * @param type  the class type of message to look for
-     * @param handler   the handler of the message
+     * Attaches the child entity to the parent entity.
+     * 
+     * 
+     * <br />The child is detached from its previous parent, if any.
+     * <br />Passing a null parent detaches the child.
+     * @param child     the entity to attach
+     * @param parent    the entity to attach to; null to detach
      */
-    public <T extends IMessage>void addHandler(final Class<T> type, final IMessageHandler<T> handler) {
-        List<IMessageHandler<? extends IMessage>> handlers = handlersByMessage.get(type);
-        
+    public void setParent(final IEntity child, final IEntity parent) {
+        if (child == null || child == parent) {
+            LOGGER.log(Level.WARNING, "Parent was not set.");
+            return;
+        }
+
+        for (IEntity each = parent; each != null; each = parentsByChild.get(each)) {
+            if (each == child) {
+                LOGGER.log(Level.WARNING, "Parent was not set; the child is an ancestor of the parent.");
+                return;
+            }
+        }
+
+        IEntity previous = parentsByChild.remove(child);
+        if (previous != null) {
+            List<IEntity> siblings = childrenByParent.get(previous);
+            siblings.remove(child);
+            if (siblings.isEmpty()) {
+                childrenByParent.remove(previous);
+            }
+        }
+
+        if (parent != null) {
+            parentsByChild.put(child, parent);
+            List<IEntity> children = childrenByParent.get(parent);
+
+            if (children == null) {
+                children = new ArrayList<IEntity>();
+                childrenByParent.put(parent, children);
+            }
+            children.add(child);
+        }
+
+        if (previous != null || parent != null) {
+            hierarchiesByRoot.clear();
+        }
+    }
+
+    /**
+     * Gets the parent of the passed entity.
+     * @param child the entity to get the parent of
+     * @return  the parent if the entity has one; null otherwise
+     */
+    public IEntity getParent(final IEntity child) {
+        return parentsByChild.get(child);
+    }
+
+    /**
+     * Gets the children of the passed entity.
+     * @param parent    the entity to get the children of
+     * @return  an iterator with the children, in the order they were attached
+     */
+    public Iterator<IEntity> getChildren(final IEntity parent) {
+        List<IEntity> children = childrenByParent.get(parent);
+
+        if (children == null) {
+            return Collections.<IEntity> emptyList().iterator();
+        }
+        return Collections.unmodifiableList(children).iterator();
+    }
+
+    /**
+     * Gets the children of the passed entity that can use the passed IInfoPack type.
+     * @param parent    the entity to get the children of
+     * @param type      the type of IInfoPack that the children can use
+     * @return  an iterator with the children that can use the pack
+     */
+    public Iterator<IEntity> getChildrenWithPack(final IEntity parent, final Class<? extends IInfoPack> type) {
+        List<IEntity> children = childrenByParent.get(parent);
+        Set<IEntity> entities = entitiesByPack.get(type);
+
+        if (children == null || entities == null) {
+            return Collections.<IEntity> emptyList().iterator();
+        }
+
+        List<IEntity> matches = new ArrayList<IEntity>(children.size());
+        for (IEntity each : children) {
+            if (entities.contains(each)) {
+                matches.add(each);
+            }
+        }
+        return matches.iterator();
+    }
+
+    /**
+     * Gets the depth-first snapshot of the passed entity and its descendants.
+     * 
+     * 
+     * The snapshot of a tracked root is reused until the relationships change;
+     * roots that are not tracked get a new snapshot that is not kept.
+     * @param root  the entity at the top of the hierarchy
+     * @return  the snapshot; null if the root is null
+     */
+    public Hierarchy getHierarchy(final IEntity root) {
+        if (root == null) {
+            return null;
+        }
+        Hierarchy hierarchy = hierarchiesByRoot.get(root);
+
+        if (hierarchy == null) {
+            hierarchy = new Hierarchy(root, childrenByParent);
+            if (root.getID() != null && entitiesByID.get(root.getID()) == root) {
+                hierarchiesByRoot.put(root, hierarchy);
+            }
+        }
+        return hierarchy;
+    }
+
+    //////////////////////////////////////////////////
+    // Reactions
+    //////////////////////////////////////////////////
+
+    /**
+     * Marks the component of the passed type as changed.
+     * 
+     * 
+     * Reactive systems are notified of the change at the start of the next tick.
+     * @param entity    the entity that owns the changed component
+     * @param type      the type of component that changed
+     */
+    public <T extends IComponent> void markChanged(final IEntity entity, final Class<T> type) {
+        if (entity == null || type == null) {
+            return;
+        }
+        record(changedByComponent, type, entity);
+        recordChange(entity);
+
+        if (isHashingState) {
+            entitiesToHash.add(entity);
+        }
+        if (entityStore != null) {
+            referencedEntities.add(entity);
+        }
+    }
+
+    /**
+     * Saves the entity to the list of changes of the passed type.
+     * 
+     * 
+     * Nothing is saved if no reactive systems are tracked.
+     * @param changes   the changes sorted by type
+     * @param type      the type that changed
+     * @param entity    the entity that changed
+     */
+    private <K> void record(final Map<K, List<IEntity>> changes, final K type, final IEntity entity) {
+        if (systems.getReactiveSystems().length == 0) {
+            return;
+        }
+        List<IEntity> entities = changes.get(type);
+
+        if (entities == null) {
+            entities = new ArrayList<IEntity>();
+            changes.put(type, entities);
+        }
+        entities.add(entity);
+    }
+
+    /**
+     * Records that the entity moved into or out of the pack type.
+     * 
+     * 
+     * A transition that undoes one still waiting to be delivered cancels it,
+     * so each entity is delivered at most once per pack type per tick, with
+     * its net change since the last tick.
+     * @param transitions   the transitions of the same direction
+     * @param opposites     the transitions of the opposite direction
+     * @param packType      the type of IInfoPack
+     * @param entity        the entity that moved
+     */
+    private void recordTransition(final Map<Class<? extends IInfoPack>, Set<IEntity>> transitions,
+            final Map<Class<? extends IInfoPack>, Set<IEntity>> opposites,
+            final Class<? extends IInfoPack> packType, final IEntity entity) {
+        if (isPaging || systems.getReactiveSystems().length == 0) {
+            return;
+        }
+        Set<IEntity> undone = opposites.get(packType);
+
+        if (undone != null && undone.remove(entity)) {
+            return;
+        }
+        Set<IEntity> entities = transitions.get(packType);
+
+        if (entities == null) {
+            entities = new LinkedHashSet<IEntity>();
+            transitions.put(packType, entities);
+        }
+        entities.add(entity);
+    }
+
+    /**
+     * Delivers the changes recorded since the last tick to the reactive systems.
+     * 
+     * 
+     * Changes made by the reactive systems while reacting are delivered next tick.
+     */
+    private void dispatchReactions() {
+        IReactiveSystem[] reactiveSystems = systems.getReactiveSystems();
+
+        Map<Class<? extends IInfoPack>, Set<IEntity>> removed = removedByPack;
+        removedByPack = deliveringRemoved;
+        deliveringRemoved = removed;
+
+        Map<Class<? extends IInfoPack>, Set<IEntity>> added = addedByPack;
+        addedByPack = deliveringAdded;
+        deliveringAdded = added;
+
+        Map<Class<? extends IComponent>, List<IEntity>> changed = changedByComponent;
+        changedByComponent = deliveringChanged;
+        deliveringChanged = changed;
+
+        for (Map.Entry<Class<? extends IInfoPack>, Set<IEntity>> each : removed.entrySet()) {
+            Set<IEntity> entities = each.getValue();
+            if (entities.isEmpty()) {
+                continue;
+            }
+            reacting.addAll(entities);
+            entities.clear();
+            for (IReactiveSystem system : reactiveSystems) {
+                if (system.isRunning()) {
+                    system.onRemoved(each.getKey(), reacting);
+                }
+            }
+            reacting.clear();
+        }
+
+        for (Map.Entry<Class<? extends IInfoPack>, Set<IEntity>> each : added.entrySet()) {
+            Set<IEntity> entities = each.getValue();
+            if (entities.isEmpty()) {
+                continue;
+            }
+            reacting.addAll(entities);
+            entities.clear();
+            for (IReactiveSystem system : reactiveSystems) {
+                if (system.isRunning()) {
+                    system.onAdded(each.getKey(), reacting);
+                }
+            }
+            reacting.clear();
+        }
+
+        for (Map.Entry<Class<? extends IComponent>, List<IEntity>> each : changed.entrySet()) {
+            List<IEntity> entities = each.getValue();
+            if (entities.isEmpty()) {
+                continue;
+            }
+            for (IReactiveSystem system : reactiveSystems) {
+                if (system.isRunning()) {
+                    system.onChanged(each.getKey(), entities);
+                }
+            }
+            entities.clear();
+        }
+    }
+
+    //////////////////////////////////////////////////
+    // Versions
+    //////////////////////////////////////////////////
+
+    /**
+     * Gets the current version.
+     * 
+     * 
+     * <br />The version advances at the start of every tick and at every {@link #checkpoint()}.
+     * <br />Changes made later in the current version share it, so use
+     * {@link #checkpoint()} to mark the point to get changes since.
+     * @return  the current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Ends the current version so later changes can be told apart from earlier ones.
+     * 
+     * 
+     * Pass the result to {@link #getEntitiesChangedSince(Class, long)} to get
+     * the entities changed after this call.
+     * @return  the version that was ended
+     */
+    public long checkpoint() {
+        return version.getAndIncrement();
+    }
+
+    /**
+     * Sets the number of versions changes are kept for.
+     * 
+     * 
+     * <br />An entity changes when it is added, changes structure, is passed to
+     * {@link #markChanged(IEntity, Class)}, or one of its
+     * {@link AbstractVersionedComponent versioned components} changes.
+     * <br />Changes before this call are forgotten.
+     * @param changeHistory the number of versions; 0 to keep none
+     */
+    public void setChangeHistory(final long changeHistory) {
+        this.changeHistory = Math.max(0, changeHistory);
+        changeLog.clear(version.get());
+    }
+
+    /**
+     * Gets the entities that can use the pack type and changed after the passed version.
+     * 
+     * 
+     * <br />If the changes since the version are no longer kept, every entity that
+     * can use the pack is returned.
+     * <br />Only a version returned by {@link #checkpoint()} is a safe boundary;
+     * passing {@link #getVersion()} misses changes made later in that version.
+     * @param packType  the type of pack
+     * @param since     a version returned by {@link #checkpoint()}
+     * @return  the changed entities, in the order they first changed
+     */
+    public List<IEntity> getEntitiesChangedSince(final Class<? extends IInfoPack> packType, final long since) {
+        Set<IEntity> entities = entitiesByPack.get(packType);
+
+        if (entities == null) {
+            return Collections.<IEntity> emptyList();
+        }
+
+        if (changeHistory == 0 || !changeLog.covers(since)) {
+            return new ArrayList<IEntity>(entities);
+        }
+
+        List<IEntity> changed = new ArrayList<IEntity>();
+        changeLog.collect(since, changed);
+
+        Iterator<IEntity> iter = changed.iterator();
+        while (iter.hasNext()) {
+            if (!entities.contains(iter.next())) {
+                iter.remove();
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Adds every entity that changed after the passed version to the collection, once each.
+     * 
+     * 
+     * Unlike {@link #getEntitiesChangedSince(Class, long)}, entities that were
+     * removed or left every pack are included.
+     * @param since     a version returned by {@link #checkpoint()}
+     * @param result    the collection to add to, in the order the entities first changed
+     * @return  true if the changes since the version are kept; false if nothing was added
+     */
+    boolean collectChangedSince(final long since, final Collection<IEntity> result) {
+        if (changeHistory == 0 || !changeLog.covers(since)) {
+            return false;
+        }
+        changeLog.collect(since, result);
+        return true;
+    }
+
+    /**
+     * Saves the entity to the change log, if changes are kept.
+     * @param entity    the entity that changed
+     */
+    private void recordChange(final IEntity entity) {
+        if (changeHistory > 0) {
+            changeLog.record(entity, version.get());
+        }
+    }
+
+    /**
+     * Gets the components of the passed entity without copying them.
+     * 
+     * 
+     * Only {@link Entity} exposes its components, so other implementations
+     * of IEntity are treated as having none.
+     * @param entity    the entity that owns the components
+     * @return          the components indexed by type; slots may be null
+     */
+    private static IComponent[] componentsOf(final IEntity entity) {
+        if (entity instanceof Entity) {
+            return ((Entity) entity).getComponentArray();
+        }
+        return NO_COMPONENTS;
+    }
+
+    /**
+     * Points the entity's versioned components at the passed Core.
+     * @param entity    the entity that owns the components
+     * @param core      the Core tracking the entity; null if no longer tracked
+     */
+    private static void bindComponents(final IEntity entity, final Core core) {
+        for (IComponent each : componentsOf(entity)) {
+            if (each instanceof AbstractVersionedComponent) {
+                ((AbstractVersionedComponent) each).bind(core);
+            }
+        }
+    }
+
+    //////////////////////////////////////////////////
+    // Update Tiers
+    //////////////////////////////////////////////////
+
+    /**
+     * Sets the function that decides how often each entity is updated.
+     * 
+     * 
+     * <br />Every entity is rated right away; afterwards a batch of entities
+     * is re-rated at the start of every tick.
+     * <br />Systems iterate {@link #getDueEntitiesWithPack(Class)} to skip
+     * entities that are not due, and use {@link #getDelta(IEntity)} for the
+     * time since each was last due.
+     * @param function  the relevance function; null to update every entity every tick
+     */
+    public void setRelevanceFunction(final IRelevanceFunction function) {
+        if (function == null) {
+            tiers = null;
+            return;
+        }
+
+        tiers = new UpdateTiers(function, tierDivisors, now());
+        for (IEntity each : entitiesByID.values()) {
+            tiers.add(each);
+        }
+    }
+
+    /**
+     * Sets the number of ticks between updates in each tier.
+     * 
+     * 
+     * Every entity is rated again if a relevance function is set.
+     * @param divisors  the divisor of each tier, starting with tier 0; each at least 1
+     */
+    public void setTierDivisors(final int... divisors) {
+        if (divisors == null || divisors.length == 0) {
+            LOGGER.log(Level.WARNING, "Tier divisors were not set.");
+            return;
+        }
+
+        int[] checked = divisors.clone();
+        for (int i = 0; i < checked.length; i++) {
+            checked[i] = Math.max(1, checked[i]);
+        }
+        this.tierDivisors = checked;
+
+        if (tiers != null) {
+            setRelevanceFunction(tiers.getFunction());
+        }
+    }
+
+    /**
+     * Sets the number of entities whose tier is re-evaluated per tick.
+     * @param tierBudget    the number of entities
+     */
+    public void setTierBudget(final int tierBudget) {
+        this.tierBudget = Math.max(0, tierBudget);
+    }
+
+    /**
+     * Moves the entity to the passed tier when the next tick starts.
+     * 
+     * 
+     * The relevance function may move it again when the entity is re-rated.
+     * @param entity    the entity to move
+     * @param tier      the tier to move it to
+     */
+    public void setTier(final IEntity entity, final int tier) {
+        if (tiers != null) {
+            tiers.setTier(entity, tier);
+        }
+    }
+
+    /**
+     * Gets the update tier of the entity.
+     * @param entity    the entity
+     * @return  the tier; 0 if no relevance function is set
+     */
+    public int getTier(final IEntity entity) {
+        return tiers == null ? 0 : Math.max(0, tiers.getTier(entity));
+    }
+
+    /**
+     * Checks to see if the entity is due to be updated this tick.
+     * @param entity    the entity to check
+     * @return  true if due; false otherwise
+     */
+    public boolean isDue(final IEntity entity) {
+        return tiers == null || tiers.isDue(entity);
+    }
+
+    /**
+     * Gets the time since the entity was last due.
+     * 
+     * 
+     * While an entity is due, this is the time it should be advanced by.
+     * @param entity    the entity
+     * @return  the time, in ms; the time since the previous tick if no relevance function is set
+     */
+    public long getDelta(final IEntity entity) {
+        return tiers == null ? tickDelta : tiers.getDelta(entity);
+    }
+
+    /**
+     * Gets the entities that can use the passed IInfoPack type and are due this tick.
+     * @param type	the type of IInfoPack that the entities can use
+     * @return	an iterator with the due entities that can use the pack
+     */
+    public Iterator<IEntity> getDueEntitiesWithPack(final Class<? extends IInfoPack> type) {
+        Set<IEntity> entities = entitiesByPack.get(type);
+
+        if (tiers == null || entities == null) {
+            return getEntitiesWithPack(type);
+        }
+        return tiers.getDue(entities);
+    }
+
+    //////////////////////////////////////////////////
+    // Timer
+    //////////////////////////////////////////////////
+    /**
+     * Gets the current time of the simulation, in ms.
+     * @return	the current time, in ms
+     */
+    public long now() {
+        return this.timer / 1000000;
+    }
+
+    /**
+     * Update the timer.
+     */
+    private void updateTimer() {
+        long now = clock.nanoTime();
+        if (isPaused == false) {
+            long timePassed = now - this.timeLastChecked;
+            this.timer += timePassed;
+        }
+        timeLastChecked = now;
+    }
+
+    /**
+     * Sets the source of time.
+     * @param clock the clock to take time from
+     */
+    public void setClock(final IClock clock) {
+        this.clock = clock;
+        this.timeLastChecked = clock.nanoTime();
+    }
+
+    /**
+     * Gets the source of time.
+     * @return  the clock time is taken from
+     */
+    public IClock getClock() {
+        return this.clock;
+    }
+
+    /**
+     * Checks to see if the desired amount of time has passed.
+     * @param now		the current time, in ms
+     * @param last		the time of last execution, in ms
+     * @param waitTime	the time to wait, in ms
+     * @return			true if the wait time has passed; false otherwise
+     */
+    public boolean isTime(final long now, final long last, final long waitTime) {
+        if (now - last >= waitTime) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the flag that indicates non-critical systems are paused.
+     * @param isPaused	true if paused;false otherwise
+     */
+    public void setPaused(final boolean isPaused) {
+        this.isPaused = isPaused;
+    }
+
+    /**
+     * Returns the flag that indicates that non-critical systems are paused.
+     * @return	true if paused; false otherwise
+     */
+    public boolean isPaused() {
+        return this.isPaused;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Paging
+    //////////////////////////////////////////////////
+
+    /**
+     * Sets the storage that evicted entities are moved to.
+     * @param entityStore   the storage; null to disable eviction
+     */
+    public void setEntityStore(final IEntityStore entityStore) {
+        this.entityStore = entityStore;
+        referencedEntities.clear();
+    }
+
+    /**
+     * Sets the number of entities kept in memory.
+     * 
+     * 
+     * <br />When exceeded, dormant entities are evicted at the start of the next tick.
+     * <br />An entity is active if it was retrieved by ID, had a component read
+     * through {@link Entity#getComponent(Class)}, as packs and systems do,
+     * changed structure, or was passed to {@link #markChanged(IEntity, Class)}
+     * since the last sweep.
+     * @param residentLimit the number of entities; 0 for no limit
+     */
+    public void setResidentLimit(final int residentLimit) {
+        this.residentLimit = residentLimit;
+    }
+
+    /**
+     * Moves the entity to the entity store.
+     * 
+     * 
+     * <br />The entity leaves all packs but keeps its components.
+     * <br />Reactive systems are not told that it left, nor that it joined again when loaded.
+     * <br />Entities with a parent or children, or with a component that is not
+     * {@link IStorableComponent storable}, are not evicted.
+     * <br />A new instance is created when the entity is loaded again, so
+     * references to the evicted instance should be dropped.
+     * @param entity    the entity to evict
+     * @return  true if the entity was evicted; false otherwise
+     */
+    public boolean evictEntity(final IEntity entity) {
+        if (entityStore == null || entity == null || entitiesByID.get(entity.getID()) != entity
+                || parentsByChild.containsKey(entity) || childrenByParent.containsKey(entity)) {
+            return false;
+        }
+
+        for (IComponent each : componentsOf(entity)) {
+            if (each != null && !(each instanceof IStorableComponent)) {
+                return false;
+            }
+        }
+
+        if (!entityStore.store(entity)) {
+            return false;
+        }
+
+        isPaging = true;
+        try {
+            for (Class<? extends IInfoPack> packType : infoPacksByType.keySet()) {
+                disallowEntityToUsePack(entity, packType);
+            }
+        }
+        finally {
+            isPaging = false;
+        }
+        bindComponents(entity, null);
+        untrack(entity);
+        return true;
+    }
+
+    /**
+     * Loads the entities with the passed IDs from the entity store and tracks them again.
+     * 
+     * 
+     * Entities already loaded by ID are tracked right away instead of at the next tick.
+     * @param ids   the IDs of the entities to load
+     * @return  the number of entities that were loaded
+     */
+    public int activateEntities(final Collection<String> ids) {
+        if (entityStore == null) {
+            return 0;
+        }
+
+        int loaded = 0;
+        for (String id : ids) {
+            IEntity entity = loadedByID.remove(id);
+            if (entity == null && entitiesByID.get(id) == null && entityStore.contains(id)) {
+                entity = entityStore.load(id);
+            }
+            if (entity != null) {
+                isPaging = true;
+                try {
+                    addEntity(entity);
+                }
+                finally {
+                    isPaging = false;
+                }
+                referencedEntities.add(entity);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Evicts dormant entities until the resident limit is met.
+     * 
+     * 
+     * Entities are visited oldest first; active entities are spared and
+     * marked dormant, so they are evicted by a later sweep unless used again.
+     */
+    private void evictDormant() {
+        int excess = entitiesByID.size() - residentLimit;
+        List<IEntity> dormant = new ArrayList<IEntity>(excess);
+
+        for (IEntity each : entitiesByID.values()) {
+            if (dormant.size() >= excess) {
+                break;
+            }
+            boolean isActive = referencedEntities.remove(each);
+            if (each instanceof Entity) {
+                isActive |= ((Entity) each).takeReferenced();
+            }
+            if (!isActive) {
+                dormant.add(each);
+            }
+        }
+
+        for (IEntity each : dormant) {
+            evictEntity(each);
+        }
+    }
+
+    //////////////////////////////////////////////////
+    // Memory
+    //////////////////////////////////////////////////
+
+    /**
+     * Estimates the heap used by the tracked entities, their components and the pack indices.
+     * @return  a report of counts and estimated sizes
+     */
+    public MemoryReport getMemoryReport() {
+        MemoryReport report = new MemoryReport();
+
+        for (IEntity each : entitiesByID.values()) {
+            report.addEntity(sizeOfEntity(each));
+
+            for (IComponent component : componentsOf(each)) {
+                if (component == null) {
+                    continue;
+                }
+                report.addComponent(component.getClass(), MemoryEstimator.sizeOf(component.getClass()));
+            }
+        }
+
+        for (Map.Entry<Class<? extends IInfoPack>, Set<IEntity>> each : entitiesByPack.entrySet()) {
+            Set<IEntity> entities = each.getValue();
+            report.addPack(each.getKey(), entities.size(), MemoryEstimator.sizeOfLinkedHashSet(entities.size()));
+        }
+
+        for (IEntity each : findRetainedEntities()) {
+            report.addRetained(sizeOfEntity(each));
+        }
+        return report;
+    }
+
+    /**
+     * Estimates the size of the entity, including its component and signature arrays but not its components.
+     * @param entity    the entity to measure
+     * @return          the estimated size, in bytes
+     */
+    private static long sizeOfEntity(final IEntity entity) {
+        long bytes = MemoryEstimator.sizeOf(entity.getClass());
+        if (entity instanceof Entity) {
+            bytes += MemoryEstimator.sizeOfArray(((Entity) entity).getCapacity());
+            bytes += MemoryEstimator.sizeOfLongArray(((Entity) entity).getSignatureLength());
+        }
+        return bytes;
+    }
+
+    /**
+     * Finds the entities that are neither tracked nor waiting to be tracked but are still referenced.
+     * 
+     * 
+     * <br />Removed entities stay referenced until their removal reactions are delivered,
+     * <br />cached hierarchies are rebuilt and the hash sweep moves past them;
+     * <br />anything retained past that is a leak.
+     * @return  the retained entities, each listed once
+     */
+    private Set<IEntity> findRetainedEntities() {
+        Set<IEntity> referenced = Collections.newSetFromMap(new IdentityHashMap<IEntity, Boolean>());
+
+        for (Set<IEntity> each : entitiesByPack.values()) {
+            referenced.addAll(each);
+        }
+        for (Set<IEntity> each : addedByPack.values()) {
+            referenced.addAll(each);
+        }
+        for (Set<IEntity> each : removedByPack.values()) {
+            referenced.addAll(each);
+        }
+        for (List<IEntity> each : changedByComponent.values()) {
+            referenced.addAll(each);
+        }
+        for (Hierarchy each : hierarchiesByRoot.values()) {
+            for (int i = 0; i < each.size(); i++) {
+                referenced.add(each.getEntity(i));
+            }
+        }
+        referenced.addAll(referencedEntities);
+        referenced.addAll(parentsByChild.keySet());
+        referenced.addAll(childrenByParent.keySet());
+        referenced.addAll(Arrays.asList(hashSweep));
+        referenced.addAll(hashesByEntity.keySet());
+        referenced.addAll(entitiesToHash);
+
+        Iterator<IEntity> entities = referenced.iterator();
+        while (entities.hasNext()) {
+            IEntity each = entities.next();
+            if (entitiesByID.get(each.getID()) == each || loadedByID.get(each.getID()) == each) {
+                entities.remove();
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * Releases memory held by the tracked structures.
+     * 
+     * 
+     * <br />Pack memberships of entities that are no longer tracked are purged.
+     * <br />Pack indices and entity component arrays are shrunk to fit.
+     * <br />Empty change lists and cached hierarchies are released.
+     * @return  the number of dead references that were purged
+     */
+    public int compact() {
+        int purged = 0;
+        Iterator<Map.Entry<Class<? extends IInfoPack>, Set<IEntity>>> packs = entitiesByPack.entrySet().iterator();
+
+        while (packs.hasNext()) {
+            Map.Entry<Class<? extends IInfoPack>, Set<IEntity>> each = packs.next();
+            Set<IEntity> entities = each.getValue();
+            Set<IEntity> compacted = new LinkedHashSet<IEntity>(Math.max(16, entities.size() * 4 / 3 + 1));
+
+            for (IEntity entity : entities) {
+                if (entitiesByID.get(entity.getID()) == entity) {
+                    compacted.add(entity);
+                }
+                else {
+                    purged++;
+                }
+            }
+
+            if (compacted.isEmpty()) {
+                packs.remove();
+            }
+            else {
+                each.setValue(compacted);
+            }
+        }
+
+        for (IEntity each : entitiesByID.values()) {
+            if (each instanceof Entity) {
+                ((Entity) each).trimToSize();
+            }
+        }
+
+        removeEmpty(addedByPack);
+        removeEmpty(removedByPack);
+        removeEmpty(changedByComponent);
+        removeEmpty(deliveringAdded);
+        removeEmpty(deliveringRemoved);
+        removeEmpty(deliveringChanged);
+        hierarchiesByRoot.clear();
+
+        if (purged > 0) {
+            LOGGER.log(Level.INFO, "Purged {0} dead pack references.", purged);
+        }
+        return purged;
+    }
+
+    /**
+     * Removes the empty collections from the passed changes.
+     * @param changes   the changes sorted by type
+     */
+    private <K> void removeEmpty(final Map<K, ? extends Collection<IEntity>> changes) {
+        Iterator<? extends Collection<IEntity>> lists = changes.values().iterator();
+        while (lists.hasNext()) {
+            if (lists.next().isEmpty()) {
+                lists.remove();
+            }
+        }
+    }
+
+    //////////////////////////////////////////////////
+    // State Hash
+    //////////////////////////////////////////////////
+
+    /**
+     * Sets the flag that indicates the world-state hash is kept up to date.
+     * 
+     * 
+     * <br />The hash is rebuilt from every tracked entity when enabled.
+     * <br />While enabled, an entity is rehashed on the tick after it is added,
+     * changes its components, is passed to {@link #markChanged(IEntity, Class)},
+     * or one of its {@link AbstractVersionedComponent versioned components} changes.
+     * <br />Values changed in place without marking are caught by a sweep that
+     * rehashes a few entities every tick; see {@link #setHashSweep(int)}.
+     * <br />Versioned components are hashed by their field values. Every other
+     * component must override {@code hashCode()} with a value computed from
+     * its fields; the default identity hash differs between runs, so the state
+     * hash could never match another run.
+     * @param isHashingState    true to keep the hash up to date; false otherwise
+     */
+    public void setHashingState(final boolean isHashingState) {
+        this.isHashingState = isHashingState;
+        this.stateHash = 0;
+        hashesByEntity.clear();
+        entitiesToHash.clear();
+        hashSweep = NO_ENTITIES;
+        hashSweepCursor = 0;
+
+        if (isHashingState) {
+            entitiesToHash.addAll(entitiesByID.values());
+            updateStateHash();
+        }
+    }
+
+    /**
+     * Gets the world-state hash as of the start of the current tick.
+     * 
+     * 
+     * Two simulations with the same hash at the same tick are very likely in the same state.
+     * @return  the hash of the simulation time and all tracked entities
+     */
+    public long getStateHash() {
+        return mix(stateHash ^ mix(timer));
+    }
+
+    /**
+     * Sets the number of entities rehashed every tick to catch changes that were not marked.
+     * 
+     * 
+     * Every tracked entity is rehashed once every {@code size / entitiesPerTick} ticks,
+     * so a value changed in place reaches the state hash within that many ticks.
+     * @param entitiesPerTick   the number of entities; 0 to only rehash marked entities
+     */
+    public void setHashSweep(final int entitiesPerTick) {
+        this.hashSweepBudget = Math.max(0, entitiesPerTick);
+    }
+
+    /**
+     * Rehashes the entities that changed since the last update, then the next window of the sweep.
+     */
+    private void updateStateHash() {
+        for (IEntity each : entitiesToHash) {
+            Long previous = hashesByEntity.get(each);
+            if (previous != null) {
+                stateHash ^= previous;
+            }
+
+            long hash = hash(each);
+            hashesByEntity.put(each, hash);
+            stateHash ^= hash;
+        }
+        entitiesToHash.clear();
+
+        int remaining = Math.min(hashSweepBudget, entitiesByID.size());
+        while (remaining-- > 0) {
+            if (hashSweepCursor >= hashSweep.length) {
+                hashSweep = entitiesByID.values().toArray(new IEntity[entitiesByID.size()]);
+                hashSweepCursor = 0;
+            }
+            IEntity each = hashSweep[hashSweepCursor];
+            hashSweep[hashSweepCursor++] = null;
+
+            Long previous = hashesByEntity.get(each);
+            if (previous == null) {//No longer tracked
+                continue;
+            }
+
+            long hash = hash(each);
+            if (hash != previous) {
+                hashesByEntity.put(each, hash);
+                stateHash ^= previous ^ hash;
+            }
+        }
+    }
+
+    /**
+     * Computes the hash of the passed entity and its components.
+     * @param entity    the entity to hash
+     * @return          a hash that does not depend on the order of the components
+     */
+    private long hash(final IEntity entity) {
+        long hash = mix(entity.getID().hashCode());
+
+        for (IComponent each : componentsOf(entity)) {
+            if (each == null) {
+                continue;
+            }
+            long type = each.getClass().getName().hashCode();
+            long value = each instanceof AbstractVersionedComponent
+                    ? ((AbstractVersionedComponent) each).hashState()
+                    : each.hashCode() & 0xFFFFFFFFL;
+            hash += mix(mix(type) ^ value);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Spreads the bits of the passed value.
+     * @param value the value to mix
+     * @return      the mixed value
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    //////////////////////////////////////////////////
+    // Message Passing
+    //////////////////////////////////////////////////
+    
+    /**
+     * Registers a handler for messages of the specified type.
+     * @param type  the class type of message to look for
+     * @param handler   the handler of the message
+     */
+    public <T extends IMessage>void addHandler(final Class<T> type, final IMessageHandler<T> handler) {
+        if (type == null || handler == null) {
+            LOGGER.log(Level.WARNING, "Could not add handler: {0}", handler);
+            return;
+        }
+        int index = TypeRegistry.MESSAGES.indexOf(type);
+
+        if (index >= handlersByMessage.length) {
+            handlersByMessage = Arrays.copyOf(handlersByMessage, index + 1);
+        }
+
+        IMessageHandler<?>[] handlers = handlersByMessage[index];
         if (handlers == null) {
-            handlers = new ArrayList<IMessageHandler<? extends IMessage>>();
-            handlersByMessage.put(type, handlers);
+            handlers = NO_HANDLERS;
         }
-        
-        if (!handlers.contains(handler)) {
-            handlers.add(handler);
+
+        for (IMessageHandler<?> each : handlers) {
+            if (each.equals(handler)) {
+                return;
+            }
         }
+
+        handlers = Arrays.copyOf(handlers, handlers.length + 1);
+        handlers[handlers.length - 1] = handler;
+        handlersByMessage[index] = handlers;
     }
     
     /**
      * Sends the passed message to all interested systems.
+     * 
+     * 
+     * Pooled messages are recycled once every handler has received them,
+     * so handlers must not keep a reference to them.
      * @param message   the message to send
      */
     public <T extends IMessage> void send(final T message) {
-        List<IMessageHandler<? extends IMessage>> handlers = handlersByMessage.get(message.getClass());
+        int index = TypeRegistry.MESSAGES.indexOf(message.getClass());
+        IMessageHandler<?>[][] handlersByMessage = this.handlersByMessage;
         
-        if (handlers != null) {
-            for (IMessageHandler<? extends IMessage> handler : handlers) {
+        if (index < handlersByMessage.length && handlersByMessage[index] != null) {
+            for (IMessageHandler<?> handler : handlersByMessage[index]) {
                 ((IMessageHandler<T>) handler).onMessageReceived(message);
             }
         }
+
+        if (message instanceof AbstractPooledMessage) {
+            ((AbstractPooledMessage) message).recycle();
+        }
     }
     
     /**
@@ -480,7 +2037,7 @@ public class Core {
      * @param level	the Level to set
      */
     public void setDebugLevel(final Level level) {
-        LOGGER.log(Level.ALL, "Debug level set to: " + level);
+        LOGGER.log(Level.ALL, "Debug level set to: {0}", level);
         this.LOGGER.setLevel(level);
     }
 }
@@ -0,0 +1,352 @@
+package com.jgefroh.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Collects the systems, packs, handlers and initial entities of a world and
+ * starts a {@code Core} with all of them at once.
+ * 
+ * <p>
+ * The configuration is validated once when built, and every problem is
+ * reported together. The systems are installed as a single array, the
+ * handlers as one array per message type, and the pack indices are built
+ * in parallel before the first tick, or taken from a {@link StartupImage}.
+ * </p>
+ * <pre>
+ * Core core = new CoreBuilder()
+ *         .addInfoPack(new MovementPack())
+ *         .addSystem(new MovementSystem())
+ *         .setImage(StartupImage.read(file))
+ *         .build();
+ * </pre>
+ * 
+ * @see StartupImage
+ */
+public class CoreBuilder {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The systems, in the order they are executed.*/
+    private final List<ISystem> systems = new ArrayList<ISystem>();
+
+    /**The packs, in the order they were added.*/
+    private final List<IInfoPack> packs = new ArrayList<IInfoPack>();
+
+    /**Holds the message handlers, sorted by message type.*/
+    private final Map<Class<? extends IMessage>, List<IMessageHandler<?>>> handlersByMessage
+        = new LinkedHashMap<Class<? extends IMessage>, List<IMessageHandler<?>>>();
+
+    /**The initial entities that are not in the image.*/
+    private final List<IEntity> entities = new ArrayList<IEntity>();
+
+    /**The frozen initial world; null to start from the added entities only.*/
+    private StartupImage image;
+
+    /**The source of time; null for the system clock.*/
+    private IClock clock;
+
+    /**The value that generated IDs continue from.*/
+    private long idSeed;
+
+    /**FLAG: Indicates whether a Core was built; the entities belong to it.*/
+    private boolean isBuilt;
+
+
+    //////////////////////////////////////////////////
+    // Setters
+    //////////////////////////////////////////////////
+
+    public CoreBuilder addSystem(final ISystem system) {
+        systems.add(system);
+        return this;
+    }
+
+    public CoreBuilder addInfoPack(final IInfoPack pack) {
+        packs.add(pack);
+        return this;
+    }
+
+    public <T extends IMessage> CoreBuilder addHandler(final Class<T> type, final IMessageHandler<T> handler) {
+        List<IMessageHandler<?>> handlers = handlersByMessage.get(type);
+
+        if (handlers == null) {
+            handlers = new ArrayList<IMessageHandler<?>>();
+            handlersByMessage.put(type, handlers);
+        }
+        handlers.add(handler);
+        return this;
+    }
+
+    public CoreBuilder addEntity(final IEntity entity) {
+        entities.add(entity);
+        return this;
+    }
+
+    /**
+     * Sets the frozen initial world to start from.
+     * 
+     * 
+     * <br />Entities added to the builder are added after the image's entities.
+     * <br />Building fails if a pack's class changed since the image was built.
+     * @param image the image; null to start from the added entities only
+     * @return      this builder
+     */
+    public CoreBuilder setImage(final StartupImage image) {
+        this.image = image;
+        return this;
+    }
+
+    /**
+     * Sets the source of time.
+     * @param clock the clock; null for the system clock
+     * @return      this builder
+     */
+    public CoreBuilder setClock(final IClock clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    /**
+     * Sets the value that generated IDs continue from.
+     * 
+     * 
+     * The image's last ID is used instead if it is higher.
+     * @param idSeed    the value before the next generated ID
+     * @return          this builder
+     */
+    public CoreBuilder setIDSeed(final long idSeed) {
+        this.idSeed = idSeed;
+        return this;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Validates the configuration and starts a Core with it.
+     * 
+     * 
+     * The systems are started. A builder can only build once, since the
+     * Core takes ownership of the entities.
+     * @return  the Core, ready for its first tick
+     * @throws IllegalStateException    if the configuration is invalid or was already built
+     */
+    public Core build() {
+        Frozen frozen = freeze();
+        isBuilt = true;
+
+        Map<Class<? extends IMessage>, IMessageHandler<?>[]> handlers
+            = new LinkedHashMap<Class<? extends IMessage>, IMessageHandler<?>[]>();
+        for (Map.Entry<Class<? extends IMessage>, List<IMessageHandler<?>>> each : handlersByMessage.entrySet()) {
+            handlers.put(each.getKey(), each.getValue().toArray(new IMessageHandler<?>[each.getValue().size()]));
+        }
+
+        Core core = clock == null ? new Core() : new Core(clock);
+        core.load(systems.toArray(new ISystem[systems.size()]), packs.toArray(new IInfoPack[packs.size()]),
+                frozen.members, handlers, frozen.entities, frozen.lastID);
+        return core;
+    }
+
+    /**
+     * Validates the configuration and freezes the initial world into an image.
+     * 
+     * 
+     * The image holds the entities and their pack indices for the added packs.
+     * @return  the image, ready to be written
+     * @throws IllegalStateException    if the configuration is invalid or was already built
+     */
+    public StartupImage buildImage() {
+        Frozen frozen = freeze();
+        Map<String, int[]> membersByPack = new LinkedHashMap<String, int[]>();
+        Map<String, Long> fingerprintsByPack = new LinkedHashMap<String, Long>();
+
+        for (int i = 0; i < packs.size(); i++) {
+            Class<? extends IInfoPack> packType = packs.get(i).getClass();
+            membersByPack.put(packType.getName(), frozen.members[i]);
+            fingerprintsByPack.put(packType.getName(), StartupImage.fingerprint(packType));
+        }
+        return new StartupImage(frozen.entities, membersByPack, fingerprintsByPack, frozen.lastID);
+    }
+
+    /**
+     * Validates the configuration, assigns IDs and builds the pack indices.
+     * @return  the frozen world
+     */
+    private Frozen freeze() {
+        List<String> problems = validate();
+        if (!problems.isEmpty()) {
+            StringBuilder message = new StringBuilder("Invalid Core configuration:");
+            for (String each : problems) {
+                message.append("\n - ").append(each);
+            }
+            throw new IllegalStateException(message.toString());
+        }
+
+        IEntity[] imageEntities = image == null ? new IEntity[0] : image.getEntities();
+        IEntity[] all = Arrays.copyOf(imageEntities, imageEntities.length + entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            all[imageEntities.length + i] = entities.get(i);
+        }
+
+        long lastID = Math.max(idSeed, image == null ? 0 : image.getLastID());
+        Set<String> ids = new HashSet<String>();
+        for (IEntity each : all) {
+            if (each.getID() != null) {
+                ids.add(each.getID());
+            }
+        }
+        for (IEntity each : all) {
+            if (each.getID() == null) {
+                String id;
+                do {
+                    id = ++lastID + "";
+                } while (ids.contains(id));
+                each.setID(id);
+            }
+        }
+
+        int[][] members = new int[packs.size()][];
+        for (int i = 0; i < packs.size(); i++) {
+            IInfoPack pack = packs.get(i);
+            int[] fromImage = image == null ? null : image.getMembers(pack.getClass());
+
+            if (fromImage == null) {
+                members[i] = evaluate(pack, all, 0);
+            }
+            else {
+                int[] added = evaluate(pack, all, imageEntities.length);
+                members[i] = Arrays.copyOf(fromImage, fromImage.length + added.length);
+                System.arraycopy(added, 0, members[i], fromImage.length, added.length);
+            }
+        }
+        return new Frozen(all, members, lastID);
+    }
+
+    /**
+     * Checks the configuration for problems.
+     * @return  a description of each problem; empty if the configuration is valid
+     */
+    private List<String> validate() {
+        List<String> problems = new ArrayList<String>();
+        if (isBuilt) {
+            problems.add("A Core was already built; its entities cannot be shared.");
+        }
+
+        Set<ISystem> seenSystems = Collections.newSetFromMap(new IdentityHashMap<ISystem, Boolean>());
+        for (ISystem each : systems) {
+            if (each == null) {
+                problems.add("Null system.");
+            }
+            else if (!seenSystems.add(each)) {
+                problems.add("System added twice: " + each);
+            }
+        }
+
+        Set<Class<?>> seenPacks = new HashSet<Class<?>>();
+        for (IInfoPack each : packs) {
+            if (each == null) {
+                problems.add("Null info pack.");
+            }
+            else if (!seenPacks.add(each.getClass())) {
+                problems.add("Info pack type added twice: " + each.getClass().getName());
+            }
+            else if (image != null && !image.isCurrent(each.getClass())) {
+                problems.add("Info pack changed since the image was built; rebuild the image: " + each.getClass().getName());
+            }
+        }
+
+        for (Map.Entry<Class<? extends IMessage>, List<IMessageHandler<?>>> each : handlersByMessage.entrySet()) {
+            if (each.getKey() == null) {
+                problems.add("Handler for null message type.");
+            }
+            List<IMessageHandler<?>> handlers = each.getValue();
+            for (int i = 0; i < handlers.size(); i++) {
+                if (handlers.get(i) == null) {
+                    problems.add("Null handler for " + each.getKey());
+                }
+                else if (handlers.indexOf(handlers.get(i)) < i) {
+                    problems.add("Handler added twice for " + each.getKey() + ": " + handlers.get(i));
+                }
+            }
+        }
+
+        Set<IEntity> seenEntities = Collections.newSetFromMap(new IdentityHashMap<IEntity, Boolean>());
+        Set<String> ids = new HashSet<String>();
+        List<IEntity> all = new ArrayList<IEntity>(entities);
+        if (image != null) {
+            all.addAll(Arrays.asList(image.getEntities()));
+        }
+        for (IEntity each : all) {
+            if (each == null) {
+                problems.add("Null entity.");
+            }
+            else if (!seenEntities.add(each)) {
+                problems.add("Entity added twice: " + each.getID());
+            }
+            else if (each.getID() != null && !ids.add(each.getID())) {
+                problems.add("Entity ID used twice: " + each.getID());
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Finds the entities from the passed position on that can use the pack.
+     * @param pack      the pack to check against
+     * @param entities  the entities to check
+     * @param from      the position of the first entity to check
+     * @return          the positions of the entities that can use the pack
+     */
+    private static int[] evaluate(final IInfoPack pack, final IEntity[] entities, final int from) {
+        PackIndexBuild build = new PackIndexBuild(pack, Arrays.asList(entities).subList(from, entities.length));
+        build.evaluate(Integer.MAX_VALUE);
+
+        int[] members = new int[entities.length - from];
+        int count = 0;
+        for (int i = 0; i < members.length; i++) {
+            if (build.getResult(i)) {
+                members[count++] = from + i;
+            }
+        }
+        return Arrays.copyOf(members, count);
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    /**
+     * A validated world with IDs assigned and pack indices built.
+     */
+    private static class Frozen {
+
+        /**The entities, image entities first.*/
+        private final IEntity[] entities;
+
+        /**The positions of the entities that can use each pack, in pack order.*/
+        private final int[][] members;
+
+        /**The last ID that was generated.*/
+        private final long lastID;
+
+        public Frozen(final IEntity[] entities, final int[][] members, final long lastID) {
+            this.entities = entities;
+            this.members = members;
+            this.lastID = lastID;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.jgefroh.core;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Reads the values written by a {@link DeltaWriter}.
+ * @see DeltaWriter
+ */
+public class DeltaReader {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The buffer being read from.*/
+    private ByteBuffer buffer;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate a reader of the passed buffer.
+     * @param buffer    the buffer to read from, positioned at the first byte
+     */
+    public DeltaReader(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Points the reader at a new buffer so it can be reused.
+     * @param buffer    the buffer to read from, positioned at the first byte
+     */
+    public void reset(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Checks to see if there is anything left to read.
+     * @return  true if there are unread bytes; false otherwise
+     */
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    public int readByte() {
+        return buffer.get();
+    }
+
+    public boolean readBoolean() {
+        return buffer.get() != 0;
+    }
+
+    public int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public int readSignedVarInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readSignedVarLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public float readFloat() {
+        return buffer.getFloat();
+    }
+
+    public double readDouble() {
+        return buffer.getDouble();
+    }
+
+    /**
+     * Reads a float written by {@link DeltaWriter#writeQuantized(float, float, float, int)}.
+     * @param min   the smallest value that could be written
+     * @param max   the largest value that could be written
+     * @param bits  the precision the value was written with
+     * @return      the value, accurate to one step
+     */
+    public float readQuantized(final float min, final float max, final int bits) {
+        int steps = (1 << bits) - 1;
+        return min + (max - min) * readVarInt() / steps;
+    }
+
+    public String readString() {
+        byte[] bytes = new byte[readVarInt()];
+        buffer.get(bytes);
+        return new String(bytes, DeltaWriter.UTF_8);
+    }
+}
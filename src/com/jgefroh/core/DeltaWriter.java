@@ -0,0 +1,184 @@
+package com.jgefroh.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+
+/**
+ * Writes compact binary values into a reusable {@code ByteBuffer}.
+ * 
+ * <p>
+ * Integers are written as variable-length quantities, so small values take
+ * a single byte. Signed values are zig-zag encoded first so that small
+ * negative values stay small. The buffer grows when it runs out of room and
+ * is reused after {@link #clear()}.
+ * </p>
+ * 
+ * @see DeltaReader
+ */
+public class DeltaWriter {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The charset used for strings.*/
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**The buffer being written to.*/
+    private ByteBuffer buffer;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate a writer with the passed starting capacity.
+     * @param capacity  the starting size of the buffer, in bytes
+     */
+    public DeltaWriter(final int capacity) {
+        this.buffer = ByteBuffer.allocate(Math.max(capacity, 16));
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Discards everything written so the buffer can be reused.
+     */
+    public void clear() {
+        buffer.clear();
+    }
+
+    /**
+     * Gets a read-only view of everything written since the last clear.
+     * @return  a buffer positioned at the first byte written
+     */
+    public ByteBuffer getBuffer() {
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.flip();
+        return view;
+    }
+
+    /**
+     * Gets the number of bytes written since the last clear.
+     * @return  the number of bytes written
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    public void writeByte(final int value) {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    public void writeBoolean(final boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Writes an int as an unsigned variable-length quantity.
+     * @param value the value to write
+     */
+    public void writeVarInt(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a long as an unsigned variable-length quantity.
+     * @param value the value to write
+     */
+    public void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a signed int, zig-zag encoded, as a variable-length quantity.
+     * @param value the value to write
+     */
+    public void writeSignedVarInt(final int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a signed long, zig-zag encoded, as a variable-length quantity.
+     * @param value the value to write
+     */
+    public void writeSignedVarLong(final long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeFloat(final float value) {
+        ensure(4);
+        buffer.putFloat(value);
+    }
+
+    public void writeDouble(final double value) {
+        ensure(8);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Writes a float as an integer step between the minimum and maximum.
+     * 
+     * <p>
+     * Values outside of the range are clamped. Read with
+     * {@link DeltaReader#readQuantized(float, float, int)} using the same range
+     * and number of bits.
+     * </p>
+     * @param value the value to write
+     * @param min   the smallest value that can be written
+     * @param max   the largest value that can be written
+     * @param bits  the precision, from 1 to 31 bits
+     */
+    public void writeQuantized(final float value, final float min, final float max, final int bits) {
+        int steps = (1 << bits) - 1;
+        float clamped = Math.max(min, Math.min(max, value));
+        writeVarInt(Math.round((clamped - min) / (max - min) * steps));
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes.
+     * @param value the string to write; null is written as an empty string
+     */
+    public void writeString(final String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(UTF_8);
+        writeVarInt(bytes.length);
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Grows the buffer if it cannot hold the passed number of bytes.
+     * @param bytes the number of bytes about to be written
+     */
+    private void ensure(final int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < bytes) {
+            capacity *= 2;
+        }
+
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
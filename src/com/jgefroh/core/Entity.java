@@ -1,21 +1,43 @@
 package com.jgefroh.core;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 
 /**
  * A default implementation of the IEntity interface.
  * @author Joseph Gefroh
  */
-public class Entity implements IEntity {
+public class Entity implements IEntity, Serializable {
 
     //////////////////////////////////////////////////
     // Fields
     //////////////////////////////////////////////////
     
-    /**Holds the components that belong to this entity.*/
-    private HashMap<Class<? extends IComponent>, IComponent> components;
-    //TODO: Research pitfalls of Class as key - supposedly causes memory leaks
+    private static final long serialVersionUID = 1L;
+
+    /**Shared by entities without components.*/
+    private static final IComponent[] NO_COMPONENTS = new IComponent[0];
+
+    /**Shared by entities without components.*/
+    private static final long[] NO_SIGNATURE = new long[0];
+
+    /**
+     * Holds the components that belong to this entity, indexed by component type.
+     * Serialized as a plain list, since type indices differ between runs.
+     */
+    private transient IComponent[] components = NO_COMPONENTS;
+
+    /**The component types this entity holds, as a bit set of their indices.*/
+    private transient long[] signature = NO_SIGNATURE;
+
+    /**Flag that shows whether a component was read since the eviction sweep last passed the entity.*/
+    private transient boolean isReferenced;
 
     /**Flag that shows whether the entity's state has changed.*/
     private boolean hasChanged = true;
@@ -52,16 +74,62 @@ public class Entity implements IEntity {
     @SuppressWarnings("unchecked")
     @Override
     public <T extends IComponent> T getComponent(Class<T> type) {
-        if (components != null) {
-            T t = (T) components.get(type);
-            if (t != null) {
-                return t;
+        if (type == null) {
+            return null;
+        }
+        int index = TypeRegistry.COMPONENTS.indexOf(type);
+        IComponent[] components = this.components;
+        isReferenced = true;
+        return index < components.length ? (T) components[index] : null;
+    }
+
+    /**
+     * Gets the component with the passed type index.
+     * @param index the index of the component type in {@link TypeRegistry#COMPONENTS}
+     * @return      the component if held; null otherwise
+     */
+    public IComponent getComponent(final int index) {
+        IComponent[] components = this.components;
+        isReferenced = true;
+        return index < components.length ? components[index] : null;
+    }
+
+    /**
+     * Checks to see if this entity holds every component type in the signature.
+     * @param required  the component types, from {@link #signatureOf(Class...)}
+     * @return          true if every type is held; false otherwise
+     */
+    public boolean hasAll(final long[] required) {
+        long[] signature = this.signature;
+        for (int i = 0; i < required.length; i++) {
+            long held = i < signature.length ? signature[i] : 0;
+            if ((held & required[i]) != required[i]) {
+                return false;
             }
-            else {//Returns null anyways :X
-                return null;
+        }
+        return true;
+    }
+
+    /**
+     * Gets all of the components of this entity.
+     * @return  a new list with the components of this entity
+     */
+    public List<IComponent> getComponents() {
+        List<IComponent> result = new ArrayList<IComponent>();
+        for (IComponent each : components) {
+            if (each != null) {
+                result.add(each);
             }
         }
-        return null;
+        return result;
+    }
+
+    /**
+     * Gets the components of this entity indexed by type, without copying.
+     * @return  the backing array; slots of types not held are null
+     */
+    IComponent[] getComponentArray() {
+        return components;
     }
 
     @Override
@@ -104,12 +172,17 @@ public class Entity implements IEntity {
     //////////////////////////////////////////////////
     @Override
     public void addComponent(final IComponent component) {
-        if (components == null) {
-            this.components = new HashMap<Class<? extends IComponent>, IComponent>();
-        }
         if (component != null) {
+            int index = TypeRegistry.COMPONENTS.indexOf(component.getClass());
+            if (index >= components.length) {
+                components = Arrays.copyOf(components, index + 1);
+            }
             component.setOwner(this);
-            components.put(component.getClass(), component);
+            components[index] = component;
+            if (index >> 6 >= signature.length) {
+                signature = Arrays.copyOf(signature, (index >> 6) + 1);
+            }
+            signature[index >> 6] |= 1L << index;
             hasChanged = true;
         }
     }
@@ -121,14 +194,126 @@ public class Entity implements IEntity {
 
     @Override
     public <T> void removeComponent(Class<T> type) {
-        if (components != null && components.get(type) != null) {
-            components.remove(type);
+        if (type == null) {
+            return;
+        }
+        int index = TypeRegistry.COMPONENTS.indexOf(type);
+        if (index < components.length && components[index] != null) {
+            unbind(components[index]);
+            components[index] = null;
+            signature[index >> 6] &= ~(1L << index);
             hasChanged = true;
         }
     }
 
     public void removeAllComponents() {
-        this.components = null;
+        for (IComponent each : components) {
+            unbind(each);
+        }
+        this.components = NO_COMPONENTS;
+        this.signature = NO_SIGNATURE;
         this.hasChanged = true;
     }
+
+    /**
+     * Stops the removed component from telling a Core about its changes.
+     * @param component the component that was removed; may be null
+     */
+    private static void unbind(final IComponent component) {
+        if (component instanceof AbstractVersionedComponent) {
+            ((AbstractVersionedComponent) component).bind(null);
+        }
+    }
+
+    /**
+     * Gets the number of component slots this entity has allocated.
+     * @return  the length of the component array
+     */
+    int getCapacity() {
+        return components.length;
+    }
+
+    /**
+     * Checks whether a component was read since the last call, and clears the flag.
+     * @return  true if a component was read; false otherwise
+     */
+    boolean takeReferenced() {
+        boolean wasReferenced = isReferenced;
+        isReferenced = false;
+        return wasReferenced;
+    }
+
+    /**
+     * Gets the number of words in the signature of this entity.
+     * @return  the length of the signature array
+     */
+    int getSignatureLength() {
+        return signature.length;
+    }
+
+    /**
+     * Shrinks the component array to fit the highest component type held.
+     */
+    void trimToSize() {
+        int length = components.length;
+        while (length > 0 && components[length - 1] == null) {
+            length--;
+        }
+
+        if (length == 0) {
+            components = NO_COMPONENTS;
+        }
+        else if (length < components.length) {
+            components = Arrays.copyOf(components, length);
+        }
+    }
+
+    /**
+     * Builds the signature of the passed component types.
+     * @param types the component types
+     * @return      a bit set of the indices of the types, for {@link #hasAll(long[])}
+     */
+    public static long[] signatureOf(final Class<?>... types) {
+        long[] signature = NO_SIGNATURE;
+        for (Class<?> each : types) {
+            int index = TypeRegistry.COMPONENTS.indexOf(each);
+            if (index >> 6 >= signature.length) {
+                signature = Arrays.copyOf(signature, (index >> 6) + 1);
+            }
+            signature[index >> 6] |= 1L << index;
+        }
+        return signature;
+    }
+
+    /**
+     * Writes the components as a count followed by each component.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int count = 0;
+        for (IComponent each : components) {
+            if (each != null) {
+                count++;
+            }
+        }
+        out.writeInt(count);
+        for (IComponent each : components) {
+            if (each != null) {
+                out.writeObject(each);
+            }
+        }
+    }
+
+    /**
+     * Reads the components and indexes them for this run.
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.components = NO_COMPONENTS;
+        this.signature = NO_SIGNATURE;
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            addComponent((IComponent) in.readObject());
+        }
+    }
 }
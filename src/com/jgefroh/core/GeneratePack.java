@@ -0,0 +1,47 @@
+package com.jgefroh.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Generates an {@code IInfoPack} that requires the listed component types.
+ * 
+ * <p>
+ * {@link PackProcessor} generates the pack next to the annotated type, named
+ * after it with {@code Pack} appended unless a name is given. The pack checks
+ * entities with a signature mask, caches each component in a typed field
+ * when pointed at an entity, exposes a getter per component and creates new
+ * instances without reflection. If the annotated type is an interface, the
+ * pack implements it.
+ * </p>
+ * <pre>
+ * &#64;GeneratePack({Position.class, Velocity.class})
+ * public interface Movement {
+ *     Position getPosition();
+ *     Velocity getVelocity();
+ * }
+ * </pre>
+ * 
+ * @see PackProcessor
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GeneratePack {
+
+    /**
+     * The component types an entity must hold to use the pack.
+     * @return  the required component types
+     */
+    Class<? extends IComponent>[] value();
+
+    /**
+     * The simple name of the generated pack.
+     * @return  the name; empty to append {@code Pack} to the annotated type's name
+     */
+    String name() default "";
+}
@@ -0,0 +1,169 @@
+package com.jgefroh.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Runs simulations as fast as possible instead of in real time.
+ * 
+ * <p>
+ * Every run gets its own {@code Core} driven by a {@link ManualClock} that is
+ * advanced by a fixed step before each tick, so systems with a wait time
+ * execute as often as they would in real time without any real waiting.
+ * Independent runs execute in parallel.
+ * </p>
+ * 
+ * @see ISimulation
+ */
+public class HeadlessRunner {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The simulated time that passes each tick, in ms.*/
+    private long step = 16;
+
+    /**The simulated time after which a run is stopped, in ms.*/
+    private long duration = 60 * 60 * 1000;
+
+    /**The number of runs that execute at the same time.*/
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Runs the simulation on the calling thread.
+     * 
+     * 
+     * The systems are stopped and removed once the run ends, however it ends,
+     * so the threads of async systems do not outlive the run.
+     * @param simulation    the simulation to run
+     * @return              the metrics of the run
+     */
+    public SimulationResult run(final ISimulation simulation) {
+        SimulationResult result = new SimulationResult();
+        ManualClock clock = new ManualClock();
+        Core core = new Core(clock);
+
+        long ticks = 0;
+        long longest = 0;
+        long start = System.nanoTime();
+
+        try {
+            simulation.setUp(core);
+
+            while (ticks * step < duration) {
+                clock.advance(step);
+                long tickStart = System.nanoTime();
+                core.work();
+                longest = Math.max(longest, System.nanoTime() - tickStart);
+                ticks++;
+
+                if (simulation.isFinished(core)) {
+                    result.setFinishedEarly(true);
+                    break;
+                }
+            }
+            simulation.collect(core, result);
+        }
+        catch (RuntimeException e) {
+            result.setError(e);
+        }
+        finally {
+            core.removeAllSystems();//Stops async systems' threads
+        }
+
+        result.setWallTime(System.nanoTime() - start);
+        result.setTicks(ticks);
+        result.setSimulatedTime(core.now());
+        result.setLongestTick(longest);
+        return result;
+    }
+
+    /**
+     * Runs the simulations in parallel.
+     * @param simulations   the simulations to run
+     * @return              the metrics of each run, in the order the simulations were passed
+     * @throws InterruptedException if interrupted while waiting for the runs
+     */
+    public List<SimulationResult> runAll(final List<? extends ISimulation> simulations) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<SimulationResult>> futures = new ArrayList<Future<SimulationResult>>(simulations.size());
+
+        try {
+            for (final ISimulation each : simulations) {
+                futures.add(executor.submit(new Callable<SimulationResult>() {
+                    @Override
+                    public SimulationResult call() {
+                        return run(each);
+                    }
+                }));
+            }
+
+            List<SimulationResult> results = new ArrayList<SimulationResult>(futures.size());
+            for (Future<SimulationResult> each : futures) {
+                try {
+                    results.add(each.get());
+                }
+                catch (ExecutionException e) {
+                    SimulationResult failed = new SimulationResult();
+                    failed.setError(e.getCause());
+                    results.add(failed);
+                }
+            }
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets the simulated time that passes each tick.
+     * @param step  the time, in ms; must be greater than 0
+     */
+    public void setStep(final long step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("Step must be greater than 0: " + step);
+        }
+        this.step = step;
+    }
+
+    public long getStep() {
+        return this.step;
+    }
+
+    /**
+     * Sets the simulated time after which a run is stopped.
+     * @param duration  the time, in ms
+     */
+    public void setDuration(final long duration) {
+        this.duration = duration;
+    }
+
+    public long getDuration() {
+        return this.duration;
+    }
+
+    /**
+     * Sets the number of runs that execute at the same time.
+     * @param threads   the number of threads to use
+     */
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+}
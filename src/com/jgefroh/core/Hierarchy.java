@@ -0,0 +1,131 @@
+package com.jgefroh.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A depth-first ordered snapshot of an entity and its descendants.
+ * 
+ * <p>
+ * Every entity is stored after its parent, so transform-style propagation
+ * is a single forward scan:
+ * </p>
+ * <pre>
+ * for (int i = 1; i &lt; hierarchy.size(); i++) {
+ *     IEntity parent = hierarchy.getEntity(hierarchy.getParentIndex(i));
+ *     IEntity child = hierarchy.getEntity(i);
+ *     ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * {@code Core} rebuilds the snapshot after the relationships change.
+ * </p>
+ * 
+ * @see Core#getHierarchy(IEntity)
+ */
+public class Hierarchy {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The entities, in depth-first order.*/
+    private IEntity[] entities;
+
+    /**The index of each entity's parent; -1 for the root.*/
+    private int[] parents;
+
+    /**The number of entities in the hierarchy.*/
+    private int size;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Builds the snapshot of the passed root and its descendants.
+     * @param root              the entity at the top of the hierarchy
+     * @param childrenByParent  the children of each entity
+     */
+    Hierarchy(final IEntity root, final Map<IEntity, List<IEntity>> childrenByParent) {
+        this.entities = new IEntity[8];
+        this.parents = new int[8];
+
+        List<IEntity> stack = new ArrayList<IEntity>();
+        List<Integer> stackParents = new ArrayList<Integer>();
+        stack.add(root);
+        stackParents.add(-1);
+
+        while (!stack.isEmpty()) {
+            int last = stack.size() - 1;
+            IEntity entity = stack.remove(last);
+            int parent = stackParents.remove(last);
+            int index = append(entity, parent);
+
+            List<IEntity> children = childrenByParent.get(entity);
+            if (children != null) {
+                for (int i = children.size() - 1; i >= 0; i--) {//Reversed to keep child order
+                    stack.add(children.get(i));
+                    stackParents.add(index);
+                }
+            }
+        }
+    }
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    /**
+     * Gets the number of entities in the hierarchy, including the root.
+     * @return  the number of entities
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the entity at the passed position.
+     * @param index the position in depth-first order; 0 is the root
+     * @return      the entity at the position
+     */
+    public IEntity getEntity(final int index) {
+        return this.entities[index];
+    }
+
+    /**
+     * Gets the position of the parent of the entity at the passed position.
+     * @param index the position in depth-first order
+     * @return      the position of the parent; -1 for the root
+     */
+    public int getParentIndex(final int index) {
+        return this.parents[index];
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Appends the entity to the end of the hierarchy.
+     * @param entity    the entity to append
+     * @param parent    the position of its parent
+     * @return          the position of the entity
+     */
+    private int append(final IEntity entity, final int parent) {
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+            parents = Arrays.copyOf(parents, size * 2);
+        }
+        entities[size] = entity;
+        parents[size] = parent;
+        return size++;
+    }
+}
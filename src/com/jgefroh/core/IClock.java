@@ -0,0 +1,22 @@
+package com.jgefroh.core;
+
+
+/**
+ * The interface for the source of time used by {@code Core}.
+ * 
+ * <p>
+ * Replace the default {@link SystemClock} with a {@link ManualClock} to make
+ * the passage of time reproducible, e.g. for lockstep networking, replays or
+ * simulations that run faster than real time.
+ * </p>
+ * 
+ * @see		Core
+ */
+public interface IClock {
+
+    /**
+     * Gets the current value of the clock.
+     * @return  the current time, in ns; only differences between values are meaningful
+     */
+    public long nanoTime();
+}
@@ -0,0 +1,23 @@
+package com.jgefroh.core;
+
+
+/**
+ * The interface for a {@code Component} whose state can be copied into a
+ * {@link Snapshot}.
+ * 
+ * @see		TickPipeline
+ */
+public interface ICopyableComponent<T extends ICopyableComponent<T>> extends IComponent {
+
+    /**
+     * Creates a new component with the same data as this one.
+     * @return  the copy
+     */
+    public T copy();
+
+    /**
+     * Overwrites the data of the target with the data of this component.
+     * @param target    the component to copy into
+     */
+    public void copyTo(final T target);
+}
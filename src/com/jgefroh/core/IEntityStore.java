@@ -0,0 +1,38 @@
+package com.jgefroh.core;
+
+
+/**
+ * The interface for storage that holds entities evicted from {@code Core}.
+ * 
+ * @see		Core#setEntityStore(IEntityStore)
+ * @see		MappedEntityStore
+ */
+public interface IEntityStore {
+
+    /**
+     * Saves the entity and its components.
+     * @param entity    the entity to save
+     * @return          true if the entity was saved; false otherwise
+     */
+    public boolean store(final IEntity entity);
+
+    /**
+     * Loads the entity with the passed ID and removes it from the store.
+     * @param id    the ID of the entity to load
+     * @return      the entity if found; null otherwise
+     */
+    public IEntity load(final String id);
+
+    /**
+     * Checks to see if the store holds the entity with the passed ID.
+     * @param id    the ID of the entity
+     * @return      true if the entity is stored; false otherwise
+     */
+    public boolean contains(final String id);
+
+    /**
+     * Discards the stored entity with the passed ID, if any.
+     * @param id    the ID of the entity
+     */
+    public void remove(final String id);
+}
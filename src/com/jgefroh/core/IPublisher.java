@@ -0,0 +1,22 @@
+package com.jgefroh.core;
+
+
+/**
+ * Publishes the state of a tick, e.g. by serializing it or rendering it.
+ * 
+ * <p>
+ * Called on the publishing thread of a {@link TickPipeline} while the next
+ * tick simulates. Only the passed {@code Snapshot} may be read; live
+ * entities and components belong to the simulating thread.
+ * </p>
+ * 
+ * @see		TickPipeline
+ */
+public interface IPublisher {
+
+    /**
+     * Publishes the snapshot.
+     * @param snapshot  the read-only state of a completed tick
+     */
+    public void publish(final Snapshot snapshot);
+}
@@ -0,0 +1,43 @@
+package com.jgefroh.core;
+
+import java.util.List;
+
+/**
+ * The interface for a {@code System} that reacts to changes instead of
+ * polling for them.
+ * 
+ * <p>
+ * {@code Core} collects the changes that happen during a tick and delivers
+ * them in batches at the start of the next {@code work()}, before any
+ * {@code System} is executed. The lists passed to these methods are reused
+ * by {@code Core} and are only valid for the duration of the call.
+ * </p>
+ * 
+ * @see		Core
+ * @see		ISystem
+ */
+public interface IReactiveSystem extends ISystem {
+
+    /**
+     * Called with the entities that became able to use the pack type.
+     * @param packType  the type of IInfoPack
+     * @param entities  the entities that were added to the pack
+     */
+    public void onAdded(final Class<? extends IInfoPack> packType, final List<IEntity> entities);
+
+    /**
+     * Called with the entities that are no longer able to use the pack type.
+     * @param packType  the type of IInfoPack
+     * @param entities  the entities that were removed from the pack
+     */
+    public void onRemoved(final Class<? extends IInfoPack> packType, final List<IEntity> entities);
+
+    /**
+     * Called with the entities whose component of the passed type was
+     * marked as changed.
+     * @param componentType the type of component that changed
+     * @param entities      the entities that own the changed components
+     * @see Core#markChanged(IEntity, Class)
+     */
+    public void onChanged(final Class<? extends IComponent> componentType, final List<IEntity> entities);
+}
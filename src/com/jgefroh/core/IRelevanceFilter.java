@@ -0,0 +1,17 @@
+package com.jgefroh.core;
+
+
+/**
+ * Decides which entities an observer is interested in.
+ * @see		ReplicationObserver
+ */
+public interface IRelevanceFilter {
+
+    /**
+     * Checks to see if the entity is relevant to the observer.
+     * @param observer  the entity the observer is viewing the world from; may be null
+     * @param entity    the entity to check
+     * @return          true if the entity should be replicated to the observer; false otherwise
+     */
+    public boolean isRelevant(final IEntity observer, final IEntity entity);
+}
@@ -0,0 +1,20 @@
+package com.jgefroh.core;
+
+
+/**
+ * Decides how often each entity is updated.
+ * @see		Core#setRelevanceFunction(IRelevanceFunction)
+ */
+public interface IRelevanceFunction {
+
+    /**
+     * Gets the update tier of the entity.
+     * 
+     * 
+     * Tier 0 is updated every tick; higher tiers are updated less often,
+     * as set by {@link Core#setTierDivisors(int...)}.
+     * @param entity    the entity to rate
+     * @return          the tier; values outside the tiers are clamped
+     */
+    public int getTier(final IEntity entity);
+}
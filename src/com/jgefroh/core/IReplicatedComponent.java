@@ -0,0 +1,49 @@
+package com.jgefroh.core;
+
+
+/**
+ * The interface for a {@code Component} that is replicated by a {@link Replicator}.
+ * 
+ * <p>
+ * Each field, or group of fields, is assigned a bit in the replication mask.
+ * The component sets the bit when the field changes, and the
+ * {@code Replicator} takes the mask once per run. The mask belongs to the
+ * {@code Replicator}; nothing else should clear it.
+ * </p>
+ * 
+ * <p>
+ * The {@code Replicator} only looks at entities the {@code Core} recorded as
+ * changed, so the component must also tell the {@code Core} when it changes.
+ * {@link AbstractVersionedComponent} does both, so a versioned component
+ * can implement this interface without extra code.
+ * </p>
+ * 
+ * @see		Replicator
+ */
+public interface IReplicatedComponent extends IComponent {
+
+    /**
+     * Gets the bits of the fields that changed since the mask was cleared.
+     * @return  the replication mask; 0 if nothing changed
+     */
+    public long getReplicationMask();
+
+    /**
+     * Clears the replication mask.
+     */
+    public void clearReplicationMask();
+
+    /**
+     * Writes the fields selected by the mask.
+     * @param mask  the bits of the fields to write; -1 for all fields
+     * @param out   the writer to write to
+     */
+    public void writeDelta(final long mask, final DeltaWriter out);
+
+    /**
+     * Reads the fields selected by the mask.
+     * @param mask  the bits of the fields to read; -1 for all fields
+     * @param in    the reader to read from
+     */
+    public void readDelta(final long mask, final DeltaReader in);
+}
@@ -0,0 +1,36 @@
+package com.jgefroh.core;
+
+
+/**
+ * The interface for a {@code Simulation} run by the {@link HeadlessRunner}.
+ * 
+ * <p>
+ * Each run gets its own {@code Core}, driven by a {@link ManualClock}, so
+ * runs do not share state and can execute in parallel.
+ * </p>
+ * 
+ * @see		HeadlessRunner
+ */
+public interface ISimulation {
+
+    /**
+     * Adds the systems, packs and entities of the simulation to the Core.
+     * @param core  the Core to run the simulation in
+     */
+    public void setUp(final Core core);
+
+    /**
+     * Checks to see if the simulation should stop early.
+     * This method is called after every tick.
+     * @param core  the Core running the simulation
+     * @return      true to stop the run; false to continue
+     */
+    public boolean isFinished(final Core core);
+
+    /**
+     * Saves the metrics of the run once it has stopped.
+     * @param core      the Core that ran the simulation
+     * @param result    the result to add metrics to
+     */
+    public void collect(final Core core, final SimulationResult result);
+}
@@ -0,0 +1,21 @@
+package com.jgefroh.core;
+
+import java.io.Serializable;
+
+
+/**
+ * The interface for a {@code Component} that can be written out of memory.
+ * 
+ * <p>
+ * Only entities whose components are all storable are evicted to an
+ * {@link IEntityStore} or written into a {@link StartupImage}. The component
+ * is written with Java serialization, so its fields must be serializable or
+ * transient; the fields of {@link AbstractComponent} are restored when the
+ * entity is read back.
+ * </p>
+ * 
+ * @see		Core#evictEntity(IEntity)
+ * @see		MappedEntityStore
+ */
+public interface IStorableComponent extends IComponent, Serializable {
+}
@@ -29,6 +29,8 @@ public interface ISystem
 {
 	/**
 	 * Initializes this {@code System} with default values.
+	 * This method is called automatically by {@code Core} when it begins
+	 * tracking this {@code System}, before {@link #start()}.
 	 */
 	public void init();
 	
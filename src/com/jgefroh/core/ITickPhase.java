@@ -0,0 +1,17 @@
+package com.jgefroh.core;
+
+
+/**
+ * A step that runs on the simulating thread of a {@link TickPipeline} before
+ * {@code Core} works, e.g. draining input.
+ * 
+ * @see		TickPipeline
+ */
+public interface ITickPhase {
+
+    /**
+     * Runs the phase.
+     * @param core  the Core being simulated
+     */
+    public void run(final Core core);
+}
@@ -1,7 +1,7 @@
 package com.jgefroh.core;
 
 
-import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,12 +14,26 @@ import java.util.logging.Logger;
  * This is purely for convenience and to reduce unnecessary code duplication.
  * </p>
  * 
+ * <p>
+ * All loggers share a single {@link AsyncLogHandler}, so log calls do not
+ * write to the console on the calling thread. Pass parameters instead of
+ * concatenating strings, e.g. {@code log(Level.WARNING, "Bad: {0}", value)},
+ * so messages are only formatted when they are written.
+ * </p>
+ * 
  * @author Joseph Gefroh
  */
 public abstract class LoggerFactory {	
 	//////////
 	// DATA
 	//////////
+	/**The handler shared by every logger.*/
+	private static final AsyncLogHandler HANDLER = new AsyncLogHandler();
+
+	static {
+		HANDLER.setLevel(Level.ALL);
+	}
+
 	/**
 	 * Returns a Logger object for the class and the specified debug level.
 	 * @param type			the Class type of the object the Logger is watching
@@ -28,11 +42,35 @@ public abstract class LoggerFactory {
 	 */
 	public static Logger getLogger(final Class<?> type, final Level debugLevel) {
 		Logger LOGGER = Logger.getLogger(type.getName());
-		ConsoleHandler ch = new ConsoleHandler();
-		ch.setLevel(Level.ALL);
-		LOGGER.addHandler(ch);
+		synchronized (LOGGER) {
+			if (!hasHandler(LOGGER)) {
+				LOGGER.addHandler(HANDLER);
+			}
+		}
 		LOGGER.setLevel(debugLevel);
 		LOGGER.setUseParentHandlers(false);
 		return LOGGER;
 	}
+
+	/**
+	 * Gets the handler shared by every logger.
+	 * @return	the shared handler
+	 */
+	public static AsyncLogHandler getHandler() {
+		return HANDLER;
+	}
+
+	/**
+	 * Checks to see if the logger already has the shared handler.
+	 * @param logger	the logger to check
+	 * @return			true if the handler is attached; false otherwise
+	 */
+	private static boolean hasHandler(final Logger logger) {
+		for (Handler each : logger.getHandlers()) {
+			if (each == HANDLER) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
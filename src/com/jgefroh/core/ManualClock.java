@@ -0,0 +1,41 @@
+package com.jgefroh.core;
+
+
+/**
+ * A clock that only moves when it is told to.
+ */
+public class ManualClock implements IClock {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The current time, in ns.*/
+    private long time;
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    @Override
+    public long nanoTime() {
+        return this.time;
+    }
+
+    /**
+     * Moves the clock forward.
+     * @param ms    the time to move forward, in ms
+     */
+    public void advance(final long ms) {
+        this.time += ms * 1000000;
+    }
+
+    /**
+     * Moves the clock forward.
+     * @param ns    the time to move forward, in ns
+     */
+    public void advanceNanos(final long ns) {
+        this.time += ns;
+    }
+}
@@ -0,0 +1,438 @@
+package com.jgefroh.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Stores evicted entities in a memory-mapped file.
+ * 
+ * <p>
+ * The file is mapped in fixed-size regions. Entities are serialized with
+ * Java serialization and written to the smallest free space that fits
+ * them, or appended to the current region; an entity that does not fit in
+ * what is left of a region starts the next one. The space of a loaded or
+ * removed entity is freed and merged with adjacent free space in the same
+ * region, so it can be reused by later entities.
+ * </p>
+ * 
+ * <p>
+ * Entities must be {@code Serializable} and their components must be
+ * {@link IStorableComponent storable}. {@link Entity} is serializable, and
+ * {@code Core} only evicts entities whose components are all storable.
+ * </p>
+ * 
+ * @see Core#setEntityStore(IEntityStore)
+ */
+public class MappedEntityStore implements IEntityStore {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The default size of a mapped region, in bytes.*/
+    public static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+    /**The file the entities are stored in.*/
+    private final RandomAccessFile file;
+
+    /**The size of each mapped region, in bytes.*/
+    private final int regionSize;
+
+    /**The mapped regions, in file order.*/
+    private final List<MappedByteBuffer> regions;
+
+    /**The position of the next record within the last region.*/
+    private int position;
+
+    /**Holds the location of each stored entity, sorted by ID.*/
+    private final Map<String, Record> recordsByID;
+
+    /**The number of entities stored.*/
+    private long evictions;
+
+    /**The number of entities loaded.*/
+    private long loads;
+
+    /**The total time spent storing entities, in ns.*/
+    private long evictionTime;
+
+    /**The total time spent loading entities, in ns.*/
+    private long loadTime;
+
+    /**The longest time spent loading a single entity, in ns.*/
+    private long longestLoad;
+
+    /**The bytes of free space between records.*/
+    private long deadBytes;
+
+    /**Holds the offsets of the free spaces within the file, sorted by length.*/
+    private final TreeMap<Integer, TreeSet<Long>> freeByLength;
+
+    /**Holds the length of each free space, sorted by its offset within the file.*/
+    private final TreeMap<Long, Integer> freeByOffset;
+
+    /**Logger for debug purposes.*/
+    private final Logger LOGGER = LoggerFactory.getLogger(this.getClass(), Level.INFO);
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate a store backed by the passed file.
+     * 
+     * 
+     * Any existing content of the file is discarded.
+     * @param path          the file to store entities in
+     * @param regionSize    the size of each mapped region, in bytes
+     * @throws IOException  if the file cannot be opened
+     */
+    public MappedEntityStore(final File path, final int regionSize) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        this.file.setLength(0);
+        this.regionSize = regionSize;
+        this.regions = new ArrayList<MappedByteBuffer>();
+        this.recordsByID = new HashMap<String, Record>();
+        this.freeByLength = new TreeMap<Integer, TreeSet<Long>>();
+        this.freeByOffset = new TreeMap<Long, Integer>();
+        this.position = regionSize;//Forces the first region to be mapped
+    }
+
+    /**
+     * Constructor to instantiate a store backed by the passed file, using the default region size.
+     * @param path          the file to store entities in
+     * @throws IOException  if the file cannot be opened
+     */
+    public MappedEntityStore(final File path) throws IOException {
+        this(path, DEFAULT_REGION_SIZE);
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    @Override
+    public boolean store(final IEntity entity) {
+        long start = System.nanoTime();
+        byte[] bytes;
+
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            ObjectOutputStream out = new ObjectOutputStream(buffer);
+            out.writeObject(entity);
+            out.close();
+            bytes = buffer.toByteArray();
+        }
+        catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not serialize entity {0}: {1}", new Object[] {entity.getID(), e});
+            return false;
+        }
+
+        if (bytes.length > regionSize) {
+            LOGGER.log(Level.WARNING, "Entity is larger than a region: {0}", entity.getID());
+            return false;
+        }
+
+        long address;
+        try {
+            address = allocate(bytes.length);
+        }
+        catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not map a new region: {0}", e);
+            return false;
+        }
+
+        Record record = new Record((int) (address / regionSize), (int) (address % regionSize), bytes.length);
+        ByteBuffer region = regions.get(record.region).duplicate();
+        region.position(record.offset);
+        region.put(bytes);
+
+        remove(entity.getID());
+        recordsByID.put(entity.getID(), record);
+
+        evictions++;
+        evictionTime += System.nanoTime() - start;
+        return true;
+    }
+
+    @Override
+    public IEntity load(final String id) {
+        Record record = recordsByID.remove(id);
+        if (record == null) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        byte[] bytes = new byte[record.length];
+        ByteBuffer region = regions.get(record.region).duplicate();
+        region.position(record.offset);
+        region.get(bytes);
+        release(record);
+
+        IEntity entity;
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            entity = (IEntity) in.readObject();
+            in.close();
+        }
+        catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not deserialize entity {0}: {1}", new Object[] {id, e});
+            return null;
+        }
+        catch (ClassNotFoundException e) {
+            LOGGER.log(Level.WARNING, "Could not deserialize entity {0}: {1}", new Object[] {id, e});
+            return null;
+        }
+
+        long time = System.nanoTime() - start;
+        loads++;
+        loadTime += time;
+        longestLoad = Math.max(longestLoad, time);
+        return entity;
+    }
+
+    @Override
+    public boolean contains(final String id) {
+        return recordsByID.containsKey(id);
+    }
+
+    @Override
+    public void remove(final String id) {
+        Record record = recordsByID.remove(id);
+        if (record != null) {
+            release(record);
+        }
+    }
+
+    /**
+     * Finds space for a record of the passed length.
+     * 
+     * 
+     * The smallest free space that fits is used, with any remainder kept
+     * free; otherwise the record is appended to the last region, mapping a
+     * new region if it does not fit.
+     * @param length        the length of the record, in bytes
+     * @return              the offset of the space within the file
+     * @throws IOException  if a new region cannot be mapped
+     */
+    private long allocate(final int length) throws IOException {
+        Map.Entry<Integer, TreeSet<Long>> fit = freeByLength.ceilingEntry(length);
+
+        if (fit != null) {
+            long address = fit.getValue().first();
+            int free = fit.getKey();
+            takeFree(address, free);
+            if (free > length) {
+                addFree(address + length, free - length);
+            }
+            return address;
+        }
+
+        if (regionSize - position < length) {
+            long tail = (long) regions.size() * regionSize - (regionSize - position);
+            int tailLength = regionSize - position;
+            regions.add(file.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) regions.size() * regionSize, regionSize));
+            position = 0;
+
+            if (regions.size() > 1 && tailLength > 0) {
+                release(tail, tailLength);
+            }
+        }
+
+        long address = (long) (regions.size() - 1) * regionSize + position;
+        position += length;
+        return address;
+    }
+
+    /**
+     * Frees the space taken by the passed record.
+     * @param record    the record that is no longer stored
+     */
+    private void release(final Record record) {
+        release((long) record.region * regionSize + record.offset, record.length);
+    }
+
+    /**
+     * Frees the passed space, merging it with adjacent free space in the same region.
+     * 
+     * 
+     * Space that ends where the last region is appended to is given back to
+     * the last region instead.
+     * @param address   the offset of the space within the file
+     * @param length    the length of the space, in bytes
+     */
+    private void release(final long address, final int length) {
+        long start = address;
+        int free = length;
+        long region = address / regionSize;
+
+        Map.Entry<Long, Integer> before = freeByOffset.lowerEntry(start);
+        if (before != null && before.getKey() + before.getValue() == start && before.getKey() / regionSize == region) {
+            takeFree(before.getKey(), before.getValue());
+            start = before.getKey();
+            free += before.getValue();
+        }
+
+        Integer after = freeByOffset.get(start + free);
+        if (after != null && (start + free) / regionSize == region) {
+            takeFree(start + free, after);
+            free += after;
+        }
+
+        long end = (long) (regions.size() - 1) * regionSize + position;
+        if (region == regions.size() - 1 && start + free == end) {
+            position -= free;
+            return;
+        }
+        addFree(start, free);
+    }
+
+    /**
+     * Records the passed space as free.
+     * @param address   the offset of the space within the file
+     * @param length    the length of the space, in bytes
+     */
+    private void addFree(final long address, final int length) {
+        TreeSet<Long> addresses = freeByLength.get(length);
+        if (addresses == null) {
+            addresses = new TreeSet<Long>();
+            freeByLength.put(length, addresses);
+        }
+        addresses.add(address);
+        freeByOffset.put(address, length);
+        deadBytes += length;
+    }
+
+    /**
+     * Removes the passed space from the free space.
+     * @param address   the offset of the space within the file
+     * @param length    the length of the space, in bytes
+     */
+    private void takeFree(final long address, final int length) {
+        TreeSet<Long> addresses = freeByLength.get(length);
+        addresses.remove(address);
+        if (addresses.isEmpty()) {
+            freeByLength.remove(length);
+        }
+        freeByOffset.remove(address);
+        deadBytes -= length;
+    }
+
+    /**
+     * Closes the file. The store cannot be used afterwards.
+     * @throws IOException  if the file cannot be closed
+     */
+    public void close() throws IOException {
+        recordsByID.clear();
+        freeByLength.clear();
+        freeByOffset.clear();
+        regions.clear();
+        file.close();
+    }
+
+
+    //////////////////////////////////////////////////
+    // Metrics
+    //////////////////////////////////////////////////
+
+    /**
+     * Gets the number of entities currently stored.
+     * @return  the number of stored entities
+     */
+    public int getStoredCount() {
+        return recordsByID.size();
+    }
+
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    public long getLoads() {
+        return this.loads;
+    }
+
+    /**
+     * Gets the average time taken to store an entity.
+     * @return  the average time, in ns
+     */
+    public long getAverageEvictionTime() {
+        return evictions == 0 ? 0 : evictionTime / evictions;
+    }
+
+    /**
+     * Gets the average time taken to load an entity.
+     * @return  the average time, in ns
+     */
+    public long getAverageLoadTime() {
+        return loads == 0 ? 0 : loadTime / loads;
+    }
+
+    /**
+     * Gets the longest time taken to load an entity.
+     * @return  the longest time, in ns
+     */
+    public long getLongestLoadTime() {
+        return this.longestLoad;
+    }
+
+    /**
+     * Gets the size of the mapped file.
+     * @return  the size, in bytes
+     */
+    public long getMappedBytes() {
+        return (long) regions.size() * regionSize;
+    }
+
+    /**
+     * Gets the free space between records, left by records that were loaded or removed.
+     * @return  the unused space, in bytes
+     */
+    public long getDeadBytes() {
+        return this.deadBytes;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    /**
+     * The location of a stored entity.
+     */
+    private static class Record {
+
+        /**The region the record is in.*/
+        private final int region;
+
+        /**The position of the record within the region.*/
+        private final int offset;
+
+        /**The length of the record, in bytes.*/
+        private final int length;
+
+        public Record(final int region, final int offset, final int length) {
+            this.region = region;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.jgefroh.core;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+
+/**
+ * Estimates the heap used by objects without an instrumentation agent.
+ * 
+ * <p>
+ * Estimates assume a 64-bit JVM with compressed references: 12-byte object
+ * headers, 16-byte array headers, 4-byte references and 8-byte alignment.
+ * Only the object itself is counted, not the objects it refers to.
+ * </p>
+ */
+public final class MemoryEstimator {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The size of an object header, in bytes.*/
+    public static final int OBJECT_HEADER = 12;
+
+    /**The size of an array header, in bytes.*/
+    public static final int ARRAY_HEADER = 16;
+
+    /**The size of a reference, in bytes.*/
+    public static final int REFERENCE = 4;
+
+    /**The size of an entry in a LinkedHashMap or LinkedHashSet, in bytes.*/
+    public static final int LINKED_ENTRY = 40;
+
+    /**Holds the shallow size of each class, in bytes.*/
+    private static final ClassValue<Long> SIZES = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(final Class<?> type) {
+            long size = OBJECT_HEADER;
+
+            for (Class<?> each = type; each != null; each = each.getSuperclass()) {
+                for (Field field : each.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += sizeOfField(field.getType());
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    private MemoryEstimator() {
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Estimates the shallow size of an instance of the passed class.
+     * @param type  the class of the instance
+     * @return      the estimated size, in bytes
+     */
+    public static long sizeOf(final Class<?> type) {
+        return SIZES.get(type);
+    }
+
+    /**
+     * Estimates the size of an array of references.
+     * @param length    the length of the array
+     * @return          the estimated size, in bytes
+     */
+    public static long sizeOfArray(final int length) {
+        return align(ARRAY_HEADER + (long) length * REFERENCE);
+    }
+
+    /**
+     * Estimates the size of an array of longs.
+     * @param length    the length of the array
+     * @return          the estimated size, in bytes
+     */
+    public static long sizeOfLongArray(final int length) {
+        return align(ARRAY_HEADER + (long) length * 8);
+    }
+
+    /**
+     * Estimates the size of a LinkedHashSet, excluding its elements.
+     * @param size  the number of elements in the set
+     * @return      the estimated size, in bytes
+     */
+    public static long sizeOfLinkedHashSet(final int size) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < size) {
+            capacity *= 2;
+        }
+        return 2 * sizeOf(Object.class) + 64 + sizeOfArray(capacity) + (long) size * LINKED_ENTRY;
+    }
+
+    /**
+     * Estimates the size of a field of the passed type.
+     * @param type  the type of the field
+     * @return      the size, in bytes
+     */
+    private static int sizeOfField(final Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    /**
+     * Rounds the size up to the object alignment.
+     * @param size  the unaligned size, in bytes
+     * @return      the aligned size, in bytes
+     */
+    private static long align(final long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,174 @@
+package com.jgefroh.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * An estimate of the heap used by the entities, components and pack
+ * indices tracked by a {@code Core}.
+ * 
+ * <p>
+ * Sizes are estimated by {@link MemoryEstimator}; they are meant for
+ * spotting growth and leaks, not for exact accounting.
+ * </p>
+ * 
+ * @see Core#getMemoryReport()
+ */
+public class MemoryReport {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The number of tracked entities.*/
+    private long entityCount;
+
+    /**The estimated size of the entities, excluding their components, in bytes.*/
+    private long entityBytes;
+
+    /**Holds the number of components of each type.*/
+    private final Map<Class<? extends IComponent>, Long> componentCounts = new LinkedHashMap<Class<? extends IComponent>, Long>();
+
+    /**Holds the estimated size of the components of each type, in bytes.*/
+    private final Map<Class<? extends IComponent>, Long> componentBytes = new LinkedHashMap<Class<? extends IComponent>, Long>();
+
+    /**Holds the number of entities allowed to use each pack type.*/
+    private final Map<Class<? extends IInfoPack>, Long> packCounts = new LinkedHashMap<Class<? extends IInfoPack>, Long>();
+
+    /**Holds the estimated size of the membership index of each pack type, in bytes.*/
+    private final Map<Class<? extends IInfoPack>, Long> packBytes = new LinkedHashMap<Class<? extends IInfoPack>, Long>();
+
+    /**The number of entities no longer tracked that are still referenced.*/
+    private long retainedCount;
+
+    /**The estimated size of the retained entities, excluding their components, in bytes.*/
+    private long retainedBytes;
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    public long getEntityCount() {
+        return this.entityCount;
+    }
+
+    public long getEntityBytes() {
+        return this.entityBytes;
+    }
+
+    /**
+     * Gets the estimated size of a single entity, excluding its components.
+     * @return  the average size, in bytes
+     */
+    public long getBytesPerEntity() {
+        return entityCount == 0 ? 0 : entityBytes / entityCount;
+    }
+
+    public Map<Class<? extends IComponent>, Long> getComponentCounts() {
+        return Collections.unmodifiableMap(componentCounts);
+    }
+
+    public Map<Class<? extends IComponent>, Long> getComponentBytes() {
+        return Collections.unmodifiableMap(componentBytes);
+    }
+
+    public Map<Class<? extends IInfoPack>, Long> getPackCounts() {
+        return Collections.unmodifiableMap(packCounts);
+    }
+
+    public Map<Class<? extends IInfoPack>, Long> getPackBytes() {
+        return Collections.unmodifiableMap(packBytes);
+    }
+
+    /**
+     * Gets the number of entities that are no longer tracked but are still
+     * referenced by pack indices, pending reactions, relations or caches.
+     * @return  the number of retained entities
+     */
+    public long getRetainedCount() {
+        return this.retainedCount;
+    }
+
+    public long getRetainedBytes() {
+        return this.retainedBytes;
+    }
+
+    /**
+     * Gets the estimated size of everything in the report.
+     * @return  the total size, in bytes
+     */
+    public long getTotalBytes() {
+        long total = entityBytes + retainedBytes;
+        for (Long each : componentBytes.values()) {
+            total += each;
+        }
+        for (Long each : packBytes.values()) {
+            total += each;
+        }
+        return total;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Adds an entity to the report.
+     * @param bytes the estimated size of the entity, excluding its components
+     */
+    void addEntity(final long bytes) {
+        entityCount++;
+        entityBytes += bytes;
+    }
+
+    /**
+     * Adds a component to the report.
+     * @param type  the type of the component
+     * @param bytes the estimated size of the component
+     */
+    void addComponent(final Class<? extends IComponent> type, final long bytes) {
+        Long count = componentCounts.get(type);
+        componentCounts.put(type, count == null ? 1 : count + 1);
+
+        Long total = componentBytes.get(type);
+        componentBytes.put(type, total == null ? bytes : total + bytes);
+    }
+
+    /**
+     * Adds the membership index of a pack type to the report.
+     * @param type  the type of pack
+     * @param count the number of entities allowed to use the pack
+     * @param bytes the estimated size of the index
+     */
+    void addPack(final Class<? extends IInfoPack> type, final long count, final long bytes) {
+        packCounts.put(type, count);
+        packBytes.put(type, bytes);
+    }
+
+    /**
+     * Adds an entity that is no longer tracked but is still referenced.
+     * @param bytes the estimated size of the entity, excluding its components
+     */
+    void addRetained(final long bytes) {
+        retainedCount++;
+        retainedBytes += bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryReport[entities=" + entityCount
+                + ", entityBytes=" + entityBytes
+                + ", componentCounts=" + componentCounts
+                + ", componentBytes=" + componentBytes
+                + ", packCounts=" + packCounts
+                + ", packBytes=" + packBytes
+                + ", retainedCount=" + retainedCount
+                + ", retainedBytes=" + retainedBytes
+                + ", totalBytes=" + getTotalBytes()
+                + "]";
+    }
+}
@@ -0,0 +1,121 @@
+package com.jgefroh.core;
+
+import java.util.Arrays;
+
+
+/**
+ * Holds reusable messages of a single type.
+ * 
+ * <p>
+ * Pools are not thread-safe. The first thread to obtain or return a message
+ * owns the pool, and any other thread that uses it gets an
+ * {@code IllegalStateException}. Obtain and send pooled messages on the
+ * thread that runs {@code Core}; an {@link AbstractAsyncSystem} should do so
+ * from {@code workAsync}, or give each worker its own pool.
+ * </p>
+ * 
+ * @see		AbstractPooledMessage
+ */
+public abstract class MessagePool<T extends AbstractPooledMessage> {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The messages that are ready to be reused.*/
+    private AbstractPooledMessage[] free;
+
+    /**The number of messages that are ready to be reused.*/
+    private int size;
+
+    /**The maximum number of messages the pool keeps.*/
+    private final int capacity;
+
+    /**The thread that uses the pool; null until it is first used.*/
+    private Thread owner;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate a pool that keeps up to the passed number of messages.
+     * @param capacity  the maximum number of messages to keep; at least 0
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public MessagePool(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        this.free = new AbstractPooledMessage[Math.min(capacity, 16)];
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Creates a new message when the pool is empty.
+     * @return  a new message
+     */
+    protected abstract T create();
+
+    /**
+     * Gets a message from the pool, creating one if none are free.
+     * @return  a message ready to be filled in and sent
+     */
+    @SuppressWarnings("unchecked")
+    public T obtain() {
+        checkOwner();
+        T message;
+        if (size > 0) {
+            message = (T) free[--size];
+            free[size] = null;
+        }
+        else {
+            message = create();
+        }
+        message.pool = this;
+        return message;
+    }
+
+    /**
+     * Returns a message to the pool.
+     * @param message   the message to return
+     */
+    void release(final AbstractPooledMessage message) {
+        checkOwner();
+        if (size == free.length) {
+            if (size >= capacity) {
+                return;
+            }
+            free = Arrays.copyOf(free, Math.min(capacity, size * 2));
+        }
+        free[size++] = message;
+    }
+
+    /**
+     * Gets the number of messages that are ready to be reused.
+     * @return  the number of free messages
+     */
+    public int getFree() {
+        return this.size;
+    }
+
+    /**
+     * Makes the calling thread the owner if the pool has none, and checks that it is the owner.
+     * @throws IllegalStateException if another thread owns the pool
+     */
+    private void checkOwner() {
+        Thread current = Thread.currentThread();
+        if (owner == null) {
+            owner = current;
+        }
+        else if (owner != current) {
+            throw new IllegalStateException("Pool is owned by " + owner.getName() + " but was used by " + current.getName());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.jgefroh.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * Checks the entities that existed when a pack type was added against it.
+ * 
+ * <p>
+ * {@code Core} evaluates a window of the entities every tick. The checks of
+ * a large window are split across worker threads, but the tick thread waits
+ * for them, so components are never read while they are being changed. The
+ * results are applied by {@code Core} on the tick thread.
+ * </p>
+ * 
+ * @see Core#isPackReady(Class)
+ */
+class PackIndexBuild {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The smallest number of entities worth handing to a worker thread.*/
+    private static final int SLICE = 1024;
+
+    /**The number of worker threads.*/
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /**Runs the checks of large windows; shared by every build.*/
+    private static ExecutorService workers;
+
+    /**The pack to check the entities against.*/
+    private final IInfoPack pack;
+
+    /**The entities that existed when the build began.*/
+    private final IEntity[] entities;
+
+    /**Whether each entity has the components the pack requires.*/
+    private final boolean[] results;
+
+    /**The position of the next entity to check.*/
+    private int cursor;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    PackIndexBuild(final IInfoPack pack, final Collection<IEntity> entities) {
+        this.pack = pack;
+        this.entities = entities.toArray(new IEntity[entities.size()]);
+        this.results = new boolean[this.entities.length];
+    }
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    IInfoPack getPack() {
+        return this.pack;
+    }
+
+    IEntity getEntity(final int index) {
+        return this.entities[index];
+    }
+
+    /**
+     * Gets the result of an evaluated entity.
+     * @param index the position of the entity
+     * @return  true if the entity can use the pack; false otherwise
+     */
+    boolean getResult(final int index) {
+        return this.results[index];
+    }
+
+    /**
+     * Checks to see if every entity has been evaluated.
+     * @return  true if the build is done; false otherwise
+     */
+    boolean isDone() {
+        return cursor >= entities.length;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Checks the next window of entities against the pack.
+     * @param limit the maximum number of entities to check
+     * @return  the position of the first entity that was checked; the
+     *          window ends at the new cursor
+     */
+    int evaluate(final int limit) {
+        int start = cursor;
+        int end = (int) Math.min(entities.length, (long) start + limit);
+        int slices = Math.min(PARALLELISM, (end - start) / SLICE);
+
+        if (slices < 2 || !evaluateInParallel(start, end, slices)) {
+            check(start, end);
+        }
+        cursor = end;
+        return start;
+    }
+
+    /**
+     * Gets the position of the next entity to check.
+     * @return  the end of the last window
+     */
+    int getCursor() {
+        return this.cursor;
+    }
+
+    /**
+     * Checks the range on the worker threads and waits for the results.
+     * @return  true if every slice finished; false if the range should be checked on this thread
+     */
+    private boolean evaluateInParallel(final int start, final int end, final int slices) {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(slices);
+        int size = (end - start + slices - 1) / slices;
+
+        for (int from = start; from < end; from += size) {
+            final int sliceStart = from;
+            final int sliceEnd = Math.min(end, from + size);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    check(sliceStart, sliceEnd);
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> each : getWorkers().invokeAll(tasks)) {
+                each.get();
+            }
+            return true;
+        }
+        catch (ExecutionException e) {
+            return false;//Rerun on the tick thread so the failure surfaces as it would in updateInfoPacks.
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Checks the entities in the range against the pack.
+     */
+    private void check(final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            results[i] = pack.checkComponents(entities[i]);
+        }
+    }
+
+    /**
+     * Gets the worker threads, creating them on first use.
+     */
+    private static synchronized ExecutorService getWorkers() {
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+                private int count;
+
+                @Override
+                public synchronized Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(runnable, "PackIndexBuild-" + (++count));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return workers;
+    }
+}
@@ -0,0 +1,243 @@
+package com.jgefroh.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+
+/**
+ * Generates the packs declared with {@link GeneratePack}.
+ * 
+ * <p>
+ * Registered through {@code META-INF/services}, so it runs whenever the
+ * Core jar is on the compiler's processor path.
+ * </p>
+ * 
+ * @see GeneratePack
+ */
+@SupportedAnnotationTypes("com.jgefroh.core.GeneratePack")
+public class PackProcessor extends AbstractProcessor {
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            for (Element each : round.getElementsAnnotatedWith(annotation)) {
+                if (each instanceof TypeElement) {
+                    generate((TypeElement) each);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates the pack declared on the passed type.
+     * @param type  the annotated type
+     */
+    private void generate(final TypeElement type) {
+        AnnotationMirror annotation = getAnnotation(type);
+        List<TypeElement> components = new ArrayList<TypeElement>();
+        String name = type.getSimpleName() + "Pack";
+
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> each : annotation.getElementValues().entrySet()) {
+            String key = each.getKey().getSimpleName().toString();
+
+            if (key.equals("name") && !each.getValue().getValue().toString().isEmpty()) {
+                name = each.getValue().getValue().toString();
+            }
+            else if (key.equals("value")) {
+                for (Object value : (List<?>) each.getValue().getValue()) {
+                    TypeMirror mirror = (TypeMirror) ((AnnotationValue) value).getValue();
+                    components.add((TypeElement) ((DeclaredType) mirror).asElement());
+                }
+            }
+        }
+
+        if (components.isEmpty()) {
+            error(type, "@GeneratePack needs at least one component type.");
+            return;
+        }
+
+        Set<String> fields = new HashSet<String>();
+        for (TypeElement each : components) {
+            if (!fields.add(getFieldName(each))) {
+                error(type, "@GeneratePack lists two components named " + each.getSimpleName() + ".");
+                return;
+            }
+        }
+
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String qualifiedName = packageName.isEmpty() ? name : packageName + "." + name;
+
+        try {
+            Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+            try {
+                writer.write(write(packageName, name, type, components));
+            }
+            finally {
+                writer.close();
+            }
+        }
+        catch (IOException e) {
+            error(type, "Could not generate " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the source of the pack.
+     * @param packageName   the package of the pack; empty for the unnamed package
+     * @param name          the simple name of the pack
+     * @param type          the annotated type
+     * @param components    the required component types
+     * @return              the source code
+     */
+    private String write(final String packageName, final String name, final TypeElement type, final List<TypeElement> components) {
+        StringBuilder out = new StringBuilder();
+        String implemented = type.getKind() == ElementKind.INTERFACE ? " implements " + type.getQualifiedName() : "";
+
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("import com.jgefroh.core.AbstractInfoPack;\n");
+        out.append("import com.jgefroh.core.Entity;\n");
+        out.append("import com.jgefroh.core.IEntity;\n");
+        out.append("import com.jgefroh.core.IInfoPack;\n");
+        out.append("import com.jgefroh.core.TypeRegistry;\n\n\n");
+
+        out.append("/**\n * Generated by {@code ").append(PackProcessor.class.getName()).append("} from {@link ")
+            .append(type.getQualifiedName()).append("}; do not edit.\n */\n");
+        out.append("public final class ").append(name).append(" extends AbstractInfoPack").append(implemented).append(" {\n\n");
+
+        out.append("    /**The component types an entity must hold.*/\n");
+        out.append("    private static final long[] SIGNATURE = Entity.signatureOf(");
+        for (int i = 0; i < components.size(); i++) {
+            out.append(i > 0 ? ", " : "").append(components.get(i).getQualifiedName()).append(".class");
+        }
+        out.append(");\n\n");
+
+        for (TypeElement each : components) {
+            out.append("    private static final int ").append(getConstantName(each))
+                .append(" = TypeRegistry.COMPONENTS.indexOf(").append(each.getQualifiedName()).append(".class);\n");
+        }
+        out.append("\n");
+
+        for (TypeElement each : components) {
+            out.append("    private ").append(each.getQualifiedName()).append(" ").append(getFieldName(each)).append(";\n");
+        }
+        out.append("\n");
+
+        out.append("    @Override\n");
+        out.append("    public boolean checkComponents(final IEntity entity) {\n");
+        out.append("        if (entity instanceof Entity) {\n");
+        out.append("            return ((Entity) entity).hasAll(SIGNATURE);\n");
+        out.append("        }\n");
+        out.append("        return entity != null");
+        for (TypeElement each : components) {
+            out.append("\n                && entity.getComponent(").append(each.getQualifiedName()).append(".class) != null");
+        }
+        out.append(";\n    }\n\n");
+
+        out.append("    @Override\n");
+        out.append("    public boolean setEntity(final IEntity entity) {\n");
+        out.append("        setCurrent(entity);\n");
+        out.append("        if (entity instanceof Entity) {\n");
+        out.append("            Entity each = (Entity) entity;\n");
+        for (TypeElement each : components) {
+            out.append("            this.").append(getFieldName(each)).append(" = (").append(each.getQualifiedName())
+                .append(") each.getComponent(").append(getConstantName(each)).append(");\n");
+        }
+        out.append("        }\n");
+        out.append("        else if (entity != null) {\n");
+        for (TypeElement each : components) {
+            out.append("            this.").append(getFieldName(each)).append(" = entity.getComponent(")
+                .append(each.getQualifiedName()).append(".class);\n");
+        }
+        out.append("        }\n");
+        out.append("        else {\n");
+        for (TypeElement each : components) {
+            out.append("            this.").append(getFieldName(each)).append(" = null;\n");
+        }
+        out.append("        }\n");
+        out.append("        return ");
+        for (int i = 0; i < components.size(); i++) {
+            out.append(i > 0 ? " && " : "").append("this.").append(getFieldName(components.get(i))).append(" != null");
+        }
+        out.append(";\n    }\n\n");
+
+        out.append("    @Override\n");
+        out.append("    public <T extends IInfoPack> T create(final Class<T> type) {\n");
+        out.append("        if (type == ").append(name).append(".class) {\n");
+        out.append("            return type.cast(new ").append(name).append("());\n");
+        out.append("        }\n");
+        out.append("        return super.create(type);\n");
+        out.append("    }\n");
+
+        for (TypeElement each : components) {
+            out.append("\n    public ").append(each.getQualifiedName()).append(" get").append(each.getSimpleName()).append("() {\n");
+            out.append("        return this.").append(getFieldName(each)).append(";\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * Gets the {@code GeneratePack} annotation of the passed type.
+     */
+    private AnnotationMirror getAnnotation(final TypeElement type) {
+        for (AnnotationMirror each : type.getAnnotationMirrors()) {
+            if (((TypeElement) each.getAnnotationType().asElement()).getQualifiedName().contentEquals(GeneratePack.class.getName())) {
+                return each;
+            }
+        }
+        throw new IllegalStateException("Not annotated: " + type);
+    }
+
+    /**
+     * Gets the name of the field that caches the component.
+     */
+    private static String getFieldName(final TypeElement component) {
+        String name = component.getSimpleName().toString();
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Gets the name of the constant that holds the component's type index.
+     */
+    private static String getConstantName(final TypeElement component) {
+        return getFieldName(component).replaceAll("([A-Z])", "_$1").toUpperCase() + "_INDEX";
+    }
+
+    private void error(final Element element, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
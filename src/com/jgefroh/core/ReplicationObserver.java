@@ -0,0 +1,127 @@
+package com.jgefroh.core;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A client that the {@link Replicator} sends world state to.
+ * 
+ * <p>
+ * The observer is interested in the entities that can use its pack type
+ * and pass its relevance filter. The deltas for the observer are written
+ * into a buffer that is reused every time the {@code Replicator} runs.
+ * </p>
+ * 
+ * <p>
+ * Relevance is checked again for entities that changed, and for every
+ * entity when the viewpoint changes. If the filter depends on anything else,
+ * call {@link #rescan()} when that changes.
+ * </p>
+ * 
+ * @see Replicator
+ */
+public class ReplicationObserver {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The entity the observer views the world from; may be null.*/
+    private final IEntity viewpoint;
+
+    /**The type of pack the replicated entities must be able to use.*/
+    private final Class<? extends IInfoPack> packType;
+
+    /**Decides which entities are relevant; null if all entities are relevant.*/
+    private final IRelevanceFilter filter;
+
+    /**Holds the entities sent to the observer and the replicated types each was sent with, one bit per type.*/
+    final Map<IEntity, Long> interest;
+
+    /**The version of the Replicator's last run that was sent to the observer.*/
+    long cursor;
+
+    /**FLAG: Indicates whether the next run checks the relevance of every entity.*/
+    boolean isRescanning;
+
+    /**Holds the deltas for the observer.*/
+    private final DeltaWriter writer;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate an observer.
+     * @param viewpoint the entity the observer views the world from; may be null
+     * @param packType  the type of pack the replicated entities must be able to use
+     * @param filter    decides which entities are relevant; null if all entities are relevant
+     */
+    public ReplicationObserver(final IEntity viewpoint, final Class<? extends IInfoPack> packType, final IRelevanceFilter filter) {
+        this.viewpoint = viewpoint;
+        this.packType = packType;
+        this.filter = filter;
+        this.interest = new LinkedHashMap<IEntity, Long>();
+        this.isRescanning = true;
+        this.writer = new DeltaWriter(1024);
+    }
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    public IEntity getViewpoint() {
+        return this.viewpoint;
+    }
+
+    public Class<? extends IInfoPack> getPackType() {
+        return this.packType;
+    }
+
+    /**
+     * Checks to see if the entity is relevant to this observer.
+     * @param entity    the entity to check
+     * @return          true if the entity should be replicated; false otherwise
+     */
+    public boolean isRelevant(final IEntity entity) {
+        return filter == null || filter.isRelevant(viewpoint, entity);
+    }
+
+    /**
+     * Gets the deltas written by the last run of the {@code Replicator}.
+     * @return  a read-only buffer with the deltas
+     */
+    public ByteBuffer getDelta() {
+        return writer.getBuffer();
+    }
+
+    /**
+     * Gets the number of entities the observer is currently sent.
+     * @return  the number of relevant entities
+     */
+    public int getInterestSize() {
+        return interest.size();
+    }
+
+    DeltaWriter getWriter() {
+        return this.writer;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Checks the relevance of every entity on the next run, instead of only
+     * the entities that changed.
+     */
+    public void rescan() {
+        this.isRescanning = true;
+    }
+}
+
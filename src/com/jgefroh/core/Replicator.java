@@ -0,0 +1,490 @@
+package com.jgefroh.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Encodes the changes to replicated components for each observer.
+ * 
+ * <p>
+ * Every run, each observer is sent:
+ * </p>
+ * <ul>
+ * <li>the full state of entities that became relevant to it,</li>
+ * <li>the changed fields of relevant entities whose components changed,</li>
+ * <li>the full state of replicated components added to relevant entities,</li>
+ * <li>the replicated components removed from relevant entities, and</li>
+ * <li>the removal of entities that are no longer relevant.</li>
+ * </ul>
+ * <p>
+ * Only the entities the {@code Core} recorded as changed are looked at, so
+ * unchanged entities cost nothing. Call {@link Core#setChangeHistory(long)}
+ * with at least the number of ticks between runs; if the changes are not
+ * kept, every entity is looked at instead.
+ * </p>
+ * 
+ * <p>
+ * Each observer keeps its own cursor, so observers can be sent deltas at
+ * different rates with {@link #replicate(ReplicationObserver)}. Changed
+ * fields are kept until every observer has been sent them.
+ * </p>
+ * 
+ * <p>
+ * Both ends must register the same replicated types in the same order.
+ * {@link #apply(ByteBuffer, Core)} decodes a delta into another {@code Core},
+ * which allows replication to be tested in-process.
+ * </p>
+ * 
+ * @see ReplicationObserver
+ * @see IReplicatedComponent
+ */
+public class Replicator {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**Marks the end of a delta.*/
+    private static final int END = 0;
+
+    /**Marks an entity whose components are sent.*/
+    private static final int UPDATE = 1;
+
+    /**Marks an entity that is no longer relevant.*/
+    private static final int REMOVE = 2;
+
+    /**Marks an entity whose replicated components were removed.*/
+    private static final int DETACH = 3;
+
+    /**The most replicated types, one per bit of the types sent to an observer.*/
+    private static final int MAX_TYPES = 64;
+
+    /**The Core that holds the entities.*/
+    private final Core core;
+
+    /**The replicated component types, in registration order.*/
+    private final List<Class<? extends IReplicatedComponent>> types;
+
+    /**The observers to send deltas to.*/
+    private final List<ReplicationObserver> observers;
+
+    /**Holds the entities that changed in each run that has not been sent to every observer, oldest first.*/
+    private final Deque<Change> journal;
+
+    /**The version of the last run.*/
+    private long lastRun;
+
+    /**Logger for debug purposes.*/
+    private final Logger LOGGER = LoggerFactory.getLogger(this.getClass(), Level.INFO);
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate a Replicator for the entities in the passed Core.
+     * @param core  the Core that holds the entities
+     */
+    public Replicator(final Core core) {
+        this.core = core;
+        this.types = new ArrayList<Class<? extends IReplicatedComponent>>();
+        this.observers = new ArrayList<ReplicationObserver>();
+        this.journal = new ArrayDeque<Change>();
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Begins replicating components of the passed type.
+     * 
+     * 
+     * Up to 64 types can be replicated.
+     * @param type  the type of component to replicate
+     */
+    public void addReplicatedType(final Class<? extends IReplicatedComponent> type) {
+        if (type == null || types.contains(type) || types.size() == MAX_TYPES) {
+            LOGGER.log(Level.WARNING, "Could not add replicated type: {0}", type);
+            return;
+        }
+        types.add(type);
+    }
+
+    /**
+     * Begins sending deltas to the passed observer.
+     * 
+     * 
+     * The first delta checks every entity and sends the relevant ones in full.
+     * @param observer  the observer to send to
+     */
+    public void addObserver(final ReplicationObserver observer) {
+        if (observer == null || observers.contains(observer)) {
+            LOGGER.log(Level.WARNING, "Could not add observer: {0}", observer);
+            return;
+        }
+        observer.cursor = lastRun;
+        observer.isRescanning = true;
+        observers.add(observer);
+    }
+
+    /**
+     * Stops sending deltas to the passed observer.
+     * @param observer  the observer to stop sending to
+     */
+    public void removeObserver(final ReplicationObserver observer) {
+        if (observers.remove(observer)) {
+            observer.interest.clear();
+            trim();
+        }
+    }
+
+    /**
+     * Encodes the delta of every observer.
+     */
+    public void replicate() {
+        collect();
+        for (ReplicationObserver each : observers) {
+            encode(each);
+        }
+        trim();
+    }
+
+    /**
+     * Encodes the delta of a single observer.
+     * 
+     * 
+     * The delta holds every change since the observer was last sent one, so
+     * observers can be sent deltas at different rates.
+     * @param observer  the observer to encode the delta for
+     */
+    public void replicate(final ReplicationObserver observer) {
+        if (!observers.contains(observer)) {
+            LOGGER.log(Level.WARNING, "Could not replicate to unknown observer: {0}", observer);
+            return;
+        }
+        collect();
+        encode(observer);
+        trim();
+    }
+
+    /**
+     * Adds the entities that changed since the last run to the journal and
+     * takes the replication masks of their components.
+     * 
+     * 
+     * If the Core no longer has the changes, every entity is added and every
+     * observer checks the relevance of every entity on its next delta.
+     */
+    private void collect() {
+        long since = lastRun;
+        lastRun = core.checkpoint();
+
+        List<IEntity> changed = new ArrayList<IEntity>();
+        if (!core.collectChangedSince(since, changed)) {
+            changed.clear();
+            Iterator<IEntity> entities = core.getEntities();
+            while (entities.hasNext()) {
+                changed.add(entities.next());
+            }
+            for (ReplicationObserver each : observers) {
+                each.isRescanning = true;
+            }
+        }
+
+        for (IEntity entity : changed) {
+            long[] masks = null;
+            for (int i = 0; i < types.size(); i++) {
+                IReplicatedComponent component = entity.getComponent(types.get(i));
+                if (component != null && component.getReplicationMask() != 0) {
+                    if (masks == null) {
+                        masks = new long[types.size()];
+                    }
+                    masks[i] = component.getReplicationMask();
+                    component.clearReplicationMask();
+                }
+            }
+            journal.add(new Change(lastRun, entity, masks));
+        }
+    }
+
+    /**
+     * Drops the journal entries that every observer has been sent.
+     */
+    private void trim() {
+        long sent = lastRun;
+        for (ReplicationObserver each : observers) {
+            sent = Math.min(sent, each.cursor);
+        }
+        while (!journal.isEmpty() && journal.peekFirst().version <= sent) {
+            journal.removeFirst();
+        }
+    }
+
+    /**
+     * Writes the delta for the passed observer.
+     * @param observer  the observer to write the delta for
+     */
+    private void encode(final ReplicationObserver observer) {
+        DeltaWriter out = observer.getWriter();
+        out.clear();
+
+        Map<IEntity, long[]> changed = new LinkedHashMap<IEntity, long[]>();
+        for (Change each : journal) {
+            if (each.version > observer.cursor) {
+                changed.put(each.entity, merge(changed.get(each.entity), each.masks));
+            }
+        }
+        observer.cursor = lastRun;
+
+        IEntity viewpoint = observer.getViewpoint();
+        boolean isRescanning = observer.isRescanning || (viewpoint != null && changed.containsKey(viewpoint));
+        observer.isRescanning = false;
+
+        if (isRescanning) {
+            List<IEntity> sent = new ArrayList<IEntity>(observer.interest.keySet());
+            Iterator<IEntity> entities = core.getEntitiesWithPack(observer.getPackType());
+            while (entities.hasNext()) {
+                IEntity entity = entities.next();
+                encode(observer, entity, changed.get(entity), out);
+            }
+            for (IEntity each : sent) {
+                if (!core.isEntityAllowedToUsePack(each, observer.getPackType())) {
+                    encode(observer, each, null, out);
+                }
+            }
+        }
+        else {
+            for (Map.Entry<IEntity, long[]> each : changed.entrySet()) {
+                encode(observer, each.getKey(), each.getValue(), out);
+            }
+        }
+        out.writeByte(END);
+    }
+
+    /**
+     * Writes the changes to the passed entity that the observer has not been sent.
+     * @param observer  the observer to write for
+     * @param entity    the entity to write
+     * @param masks     the changed fields of each replicated type; null if none changed
+     * @param out       the writer to write to
+     */
+    private void encode(final ReplicationObserver observer, final IEntity entity, final long[] masks, final DeltaWriter out) {
+        Long sent = observer.interest.get(entity);
+        boolean isRelevant = core.getTrackedEntity(entity.getID()) == entity
+                && core.isEntityAllowedToUsePack(entity, observer.getPackType())
+                && observer.isRelevant(entity);
+
+        if (!isRelevant) {
+            if (sent != null) {
+                observer.interest.remove(entity);
+                out.writeByte(REMOVE);
+                out.writeString(entity.getID());
+            }
+            return;
+        }
+
+        long held = 0;
+        for (int i = 0; i < types.size(); i++) {
+            if (entity.getComponent(types.get(i)) != null) {
+                held |= 1L << i;
+            }
+        }
+        observer.interest.put(entity, held);
+
+        boolean isNew = sent == null;
+        long added = isNew ? held : held & ~sent;
+        long removed = isNew ? 0 : sent & ~held;
+
+        int count = 0;
+        for (int i = 0; i < types.size(); i++) {
+            if ((added & (1L << i)) != 0 || ((held & (1L << i)) != 0 && maskOf(masks, i) != 0)) {
+                count++;
+            }
+        }
+
+        if (count > 0 || isNew) {
+            out.writeByte(UPDATE);
+            out.writeString(entity.getID());
+            out.writeVarInt(count);
+
+            for (int i = 0; i < types.size(); i++) {
+                if ((held & (1L << i)) == 0) {
+                    continue;
+                }
+                IReplicatedComponent component = entity.getComponent(types.get(i));
+
+                if ((added & (1L << i)) != 0) {
+                    out.writeVarInt(i);
+                    out.writeVarInt(0);//0 marks the full state
+                    component.writeDelta(-1, out);
+                }
+                else if (maskOf(masks, i) != 0) {
+                    out.writeVarInt(i);
+                    out.writeVarLong(masks[i]);
+                    component.writeDelta(masks[i], out);
+                }
+            }
+        }
+
+        if (removed != 0) {
+            out.writeByte(DETACH);
+            out.writeString(entity.getID());
+            out.writeVarInt(Long.bitCount(removed));
+            for (int i = 0; i < types.size(); i++) {
+                if ((removed & (1L << i)) != 0) {
+                    out.writeVarInt(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a delta written by a Replicator to the passed Core.
+     * 
+     * 
+     * <br />Entities that do not exist yet are created with their replicated components.
+     * <br />Replicated components removed at the source are removed.
+     * <br />Entities that are no longer relevant are removed.
+     * @param delta     the delta, positioned at the first byte
+     * @param target    the Core to apply the delta to
+     */
+    public void apply(final ByteBuffer delta, final Core target) {
+        DeltaReader in = new DeltaReader(delta);
+
+        for (int tag = in.readByte(); tag != END; tag = in.readByte()) {
+            String id = in.readString();
+
+            if (tag == REMOVE) {
+                target.removeEntity(id);
+                continue;
+            }
+
+            if (tag == DETACH) {
+                IEntity entity = target.getEntityWithID(id);
+                int count = in.readVarInt();
+                for (int i = 0; i < count; i++) {
+                    Class<? extends IReplicatedComponent> type = types.get(in.readVarInt());
+                    if (entity != null) {
+                        entity.removeComponent(type);
+                    }
+                }
+                continue;
+            }
+
+            IEntity entity = target.getEntityWithID(id);
+            boolean isNew = entity == null;
+            if (isNew) {
+                entity = new Entity();
+                entity.setID(id);
+            }
+
+            int count = in.readVarInt();
+            for (int i = 0; i < count; i++) {
+                Class<? extends IReplicatedComponent> type = types.get(in.readVarInt());
+                long mask = in.readVarLong();
+
+                IReplicatedComponent component = entity.getComponent(type);
+                if (component == null) {
+                    component = create(type);
+                    entity.addComponent(component);
+                }
+                component.readDelta(mask == 0 ? -1 : mask, in);
+                component.clearReplicationMask();
+            }
+
+            if (isNew) {
+                target.addEntity(entity);
+            }
+        }
+    }
+
+    /**
+     * Combines the changed fields of two runs.
+     * @param masks     the changed fields so far; may be null
+     * @param more      the changed fields to add; may be null
+     * @return          the combined fields; null if neither run changed any
+     */
+    private static long[] merge(final long[] masks, final long[] more) {
+        if (masks == null) {
+            return more == null ? null : more.clone();
+        }
+        if (more != null) {
+            for (int i = 0; i < more.length; i++) {
+                masks[i] |= more[i];
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * Gets the changed fields of a replicated type.
+     * @param masks the changed fields of each replicated type; may be null
+     * @param index the index of the type
+     * @return      the changed fields; 0 if none changed
+     */
+    private static long maskOf(final long[] masks, final int index) {
+        return masks == null || index >= masks.length ? 0 : masks[index];
+    }
+
+    /**
+     * Creates an empty component of the passed type.
+     * @param type  the type of component to create
+     * @return      the created component
+     */
+    private <T extends IReplicatedComponent> T create(final Class<T> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Replicated type needs a no-argument constructor: " + type, e);
+        }
+        catch (InstantiationException e) {
+            throw new IllegalStateException("Replicated type cannot be instantiated: " + type, e);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException("Replicated type needs a public no-argument constructor: " + type, e);
+        }
+        catch (InvocationTargetException e) {
+            throw new IllegalStateException("Replicated type's constructor failed: " + type, e.getCause());
+        }
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    /**
+     * An entity that changed in a run, with the changed fields of its replicated components.
+     */
+    private static class Change {
+
+        /**The version of the run.*/
+        final long version;
+
+        /**The entity that changed.*/
+        final IEntity entity;
+
+        /**The changed fields of each replicated type; null if none changed.*/
+        final long[] masks;
+
+        Change(final long version, final IEntity entity, final long[] masks) {
+            this.version = version;
+            this.entity = entity;
+            this.masks = masks;
+        }
+    }
+}
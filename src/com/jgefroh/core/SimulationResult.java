@@ -0,0 +1,141 @@
+package com.jgefroh.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The metrics of a single run of an {@link ISimulation}.
+ */
+public class SimulationResult {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The number of ticks that were run.*/
+    private long ticks;
+
+    /**The simulated time that passed, in ms.*/
+    private long simulatedTime;
+
+    /**The real time the run took, in ns.*/
+    private long wallTime;
+
+    /**The longest tick, in ns.*/
+    private long longestTick;
+
+    /**FLAG: Indicates whether the simulation stopped itself before the time limit.*/
+    private boolean isFinishedEarly;
+
+    /**The error that stopped the run, if any.*/
+    private Throwable error;
+
+    /**Holds the metrics added by the simulation, sorted by name.*/
+    private final Map<String, Double> metrics = new LinkedHashMap<String, Double>();
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    public long getTicks() {
+        return this.ticks;
+    }
+
+    public long getSimulatedTime() {
+        return this.simulatedTime;
+    }
+
+    public long getWallTime() {
+        return this.wallTime;
+    }
+
+    public long getLongestTick() {
+        return this.longestTick;
+    }
+
+    /**
+     * Gets the average tick, in ns.
+     * @return  the average time taken by a tick, in ns
+     */
+    public long getAverageTick() {
+        return ticks == 0 ? 0 : wallTime / ticks;
+    }
+
+    public boolean isFinishedEarly() {
+        return this.isFinishedEarly;
+    }
+
+    public Throwable getError() {
+        return this.error;
+    }
+
+    /**
+     * Gets the metric with the passed name.
+     * @param name  the name of the metric
+     * @return      the value of the metric if found; null otherwise
+     */
+    public Double get(final String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Gets all of the metrics added by the simulation.
+     * @return  the metrics, sorted by name
+     */
+    public Map<String, Double> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+
+    //////////////////////////////////////////////////
+    // Setters
+    //////////////////////////////////////////////////
+
+    /**
+     * Adds a metric to the result.
+     * @param name  the name of the metric
+     * @param value the value of the metric
+     */
+    public void put(final String name, final double value) {
+        metrics.put(name, value);
+    }
+
+    void setTicks(final long ticks) {
+        this.ticks = ticks;
+    }
+
+    void setSimulatedTime(final long simulatedTime) {
+        this.simulatedTime = simulatedTime;
+    }
+
+    void setWallTime(final long wallTime) {
+        this.wallTime = wallTime;
+    }
+
+    void setLongestTick(final long longestTick) {
+        this.longestTick = longestTick;
+    }
+
+    void setFinishedEarly(final boolean isFinishedEarly) {
+        this.isFinishedEarly = isFinishedEarly;
+    }
+
+    void setError(final Throwable error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationResult[ticks=" + ticks
+                + ", simulatedTime=" + simulatedTime
+                + ", wallTime=" + wallTime
+                + ", longestTick=" + longestTick
+                + ", finishedEarly=" + isFinishedEarly
+                + ", metrics=" + metrics
+                + (error == null ? "" : ", error=" + error)
+                + "]";
+    }
+}
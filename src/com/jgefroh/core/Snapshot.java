@@ -0,0 +1,137 @@
+package com.jgefroh.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A read-only copy of the declared components at the end of a tick.
+ * 
+ * <p>
+ * Snapshots are reused by the {@link TickPipeline}; the component copies
+ * inside are overwritten when the snapshot is captured again, so nothing
+ * should keep a reference to them after publishing.
+ * </p>
+ * 
+ * @see TickPipeline
+ */
+public class Snapshot {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**Holds the component copies, sorted by component type and then by entity ID.*/
+    private final Map<Class<?>, Map<String, ICopyableComponent<?>>> componentsByType;
+
+    /**The number of the tick that was captured.*/
+    private long tick;
+
+    /**The simulation time of the tick, in ms.*/
+    private long time;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    Snapshot() {
+        this.componentsByType = new HashMap<Class<?>, Map<String, ICopyableComponent<?>>>();
+    }
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    public long getTick() {
+        return this.tick;
+    }
+
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets the copy of the component of the passed type.
+     * @param id    the ID of the entity that owns the component
+     * @param type  the type of component
+     * @return      the copy if captured; null otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ICopyableComponent<T>> T getComponent(final String id, final Class<T> type) {
+        Map<String, ICopyableComponent<?>> components = componentsByType.get(type);
+        return components == null ? null : (T) components.get(id);
+    }
+
+    /**
+     * Gets the copies of all components of the passed type.
+     * @param type  the type of component
+     * @return      the copies, sorted by the ID of the entity that owns them
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ICopyableComponent<T>> Map<String, T> getComponents(final Class<T> type) {
+        Map<String, ICopyableComponent<?>> components = componentsByType.get(type);
+
+        if (components == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap((Map<String, T>) (Map<String, ?>) components);
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Copies the declared components of the tracked entities into this snapshot.
+     * 
+     * 
+     * Existing copies are overwritten in place; copies of components that no longer exist are dropped.
+     * @param core  the Core to copy from
+     * @param types the types of component to copy
+     * @param tick  the number of the tick being captured
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void capture(final Core core, final Iterable<Class<? extends ICopyableComponent<?>>> types, final long tick) {
+        this.tick = tick;
+        this.time = core.now();
+
+        for (Class<? extends ICopyableComponent<?>> type : types) {
+            Map<String, ICopyableComponent<?>> components = componentsByType.get(type);
+            if (components == null) {
+                components = new LinkedHashMap<String, ICopyableComponent<?>>();
+                componentsByType.put(type, components);
+            }
+
+            Iterator<Map.Entry<String, ICopyableComponent<?>>> copies = components.entrySet().iterator();
+            while (copies.hasNext()) {
+                IEntity entity = core.getTrackedEntity(copies.next().getKey());
+                if (entity == null || entity.getComponent(type) == null) {
+                    copies.remove();
+                }
+            }
+
+            Iterator<IEntity> entities = core.getEntities();
+            while (entities.hasNext()) {
+                IEntity entity = entities.next();
+                ICopyableComponent live = entity.getComponent(type);
+                if (live == null) {
+                    continue;
+                }
+
+                ICopyableComponent copy = components.get(entity.getID());
+                if (copy == null) {
+                    components.put(entity.getID(), (ICopyableComponent<?>) live.copy());
+                }
+                else {
+                    live.copyTo(copy);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.jgefroh.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+
+/**
+ * The entities that can use a pack type, kept in a specific order.
+ * 
+ * <p>
+ * {@code Core} adds and removes entities as pack membership changes and
+ * re-sorts the view at the start of every tick. The sort is an insertion
+ * sort, so a tick where few entities moved costs close to O(N); if the
+ * order changed a lot, it falls back to a full sort. Removed entities are
+ * only marked, and are dropped together in one pass by the next sort, so
+ * the positions never shift while the view is read. Until then a removed
+ * entity's position reads as null. Iterate the view by index to avoid
+ * allocating, and skip the nulls:
+ * </p>
+ * <pre>
+ * for (int i = 0; i &lt; view.size(); i++) {
+ *     IEntity entity = view.get(i);
+ *     if (entity == null) {
+ *         continue;
+ *     }
+ *     ...
+ * }
+ * </pre>
+ * 
+ * @see Core#createSortedView(Class, Comparator)
+ */
+public class SortedPackView {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The type of pack the entities can use.*/
+    private final Class<? extends IInfoPack> packType;
+
+    /**Decides the order of the entities.*/
+    private final Comparator<IEntity> comparator;
+
+    /**The entities, sorted as of the last sort.*/
+    private IEntity[] entities;
+
+    /**The number of entities in the array, including removed ones.*/
+    private int size;
+
+    /**Holds the entities removed since the array was last compacted.*/
+    private final Set<IEntity> removed;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    SortedPackView(final Class<? extends IInfoPack> packType, final Comparator<IEntity> comparator) {
+        this.packType = packType;
+        this.comparator = comparator;
+        this.entities = new IEntity[16];
+        this.removed = Collections.newSetFromMap(new IdentityHashMap<IEntity, Boolean>());
+    }
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    public Class<? extends IInfoPack> getPackType() {
+        return this.packType;
+    }
+
+    /**
+     * Gets the number of positions in the view, including those of entities
+     * removed since the last sort.
+     * @return  the number of positions
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the number of entities in the view, excluding removed ones.
+     * @return  the number of entities
+     */
+    public int count() {
+        return size - removed.size();
+    }
+
+    /**
+     * Gets the entity at the passed position.
+     * @param index the position, from 0 to size() - 1
+     * @return      the entity at the position; null if it was removed since the last sort
+     */
+    public IEntity get(final int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        IEntity entity = entities[index];
+        return removed.isEmpty() || !removed.contains(entity) ? entity : null;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Drops the removed entities and restores the order of the rest.
+     * 
+     * 
+     * Call this after changing the sorted values in the middle of a tick;
+     * otherwise {@code Core} calls it at the start of every tick. Do not call
+     * it while the view is being iterated.
+     */
+    public void sort() {
+        if (!removed.isEmpty()) {
+            compact();
+        }
+        long budget = (long) size * 8;
+
+        for (int i = 1; i < size; i++) {
+            IEntity entity = entities[i];
+            int j = i - 1;
+
+            while (j >= 0 && comparator.compare(entities[j], entity) > 0) {
+                entities[j + 1] = entities[j];
+                j--;
+
+                if (--budget < 0) {//Too far out of order; a full sort is cheaper
+                    entities[j + 1] = entity;
+                    Arrays.sort(entities, 0, size, comparator);
+                    return;
+                }
+            }
+            entities[j + 1] = entity;
+        }
+    }
+
+    /**
+     * Adds the entity to the end of the view; it is moved into place by the next sort.
+     * @param entity    the entity to add
+     */
+    void add(final IEntity entity) {
+        if (removed.remove(entity)) {//Still in the array
+            return;
+        }
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+        }
+        entities[size++] = entity;
+    }
+
+    /**
+     * Marks the entity as removed; it is dropped by the next sort.
+     * @param entity    the entity to remove
+     */
+    void remove(final IEntity entity) {
+        removed.add(entity);
+    }
+
+    /**
+     * Removes all entities from the view.
+     */
+    void clear() {
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+        removed.clear();
+    }
+
+    /**
+     * Drops the removed entities, keeping the order of the rest.
+     */
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            IEntity entity = entities[i];
+            if (!removed.contains(entity)) {
+                entities[kept++] = entity;
+            }
+        }
+        Arrays.fill(entities, kept, size, null);
+        size = kept;
+        removed.clear();
+    }
+}
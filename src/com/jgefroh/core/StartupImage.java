@@ -0,0 +1,391 @@
+package com.jgefroh.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+
+/**
+ * A frozen initial world that {@link CoreBuilder} can start from.
+ * 
+ * <p>
+ * The image holds the initial entities, the ID they were generated up to,
+ * and which entities can use each pack type, so a {@code Core} built from it
+ * skips evaluating the entities against the packs. Images are written once,
+ * for example at build time, and memory-mapped when read; the entities are
+ * stored in independent chunks that are deserialized in parallel.
+ * </p>
+ * 
+ * <p>
+ * Only data is stored; systems, packs and handlers are still registered on
+ * the builder. Because no classes are stored, images work alongside
+ * class-data sharing: archive the Core, pack, system and component classes
+ * with {@code -XX:ArchiveClassesAtExit} on a training start, and boot with
+ * {@code -XX:SharedArchiveFile} plus the image. Rebuild the image whenever
+ * component classes or pack requirements change.
+ * </p>
+ * 
+ * <p>
+ * The image stores a fingerprint of each pack's class file, and a builder
+ * whose pack classes changed since the image was written refuses to build,
+ * so stale pack indices are never trusted.
+ * </p>
+ * 
+ * @see CoreBuilder#setImage(StartupImage)
+ */
+public class StartupImage {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**Identifies a startup image file.*/
+    private static final int MAGIC = 0x436F7265;
+
+    /**The version of the file format.*/
+    private static final int FORMAT = 2;
+
+    /**The number of entities serialized together; chunks are read in parallel.*/
+    private static final int CHUNK = 4096;
+
+    /**The initial entities.*/
+    private final IEntity[] entities;
+
+    /**Holds the positions of the entities that can use each pack, in the order the packs were added, by pack class name.*/
+    private final Map<String, int[]> membersByPack;
+
+    /**Holds the fingerprint of each pack's class file when the image was built, by pack class name.*/
+    private final Map<String, Long> fingerprintsByPack;
+
+    /**The last ID that was generated for the entities.*/
+    private final long lastID;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    StartupImage(final IEntity[] entities, final Map<String, int[]> membersByPack,
+            final Map<String, Long> fingerprintsByPack, final long lastID) {
+        this.entities = entities;
+        this.membersByPack = membersByPack;
+        this.fingerprintsByPack = fingerprintsByPack;
+        this.lastID = lastID;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    IEntity[] getEntities() {
+        return this.entities;
+    }
+
+    /**
+     * Gets the positions of the entities that can use the pack.
+     * @param packType  the type of pack
+     * @return  the positions in {@link #getEntities()}; null if the pack was not in the image
+     */
+    int[] getMembers(final Class<? extends IInfoPack> packType) {
+        return membersByPack.get(packType.getName());
+    }
+
+    /**
+     * Checks to see if the pack's class is the same as when the image was built.
+     * @param packType  the type of pack
+     * @return  true if the pack is unchanged, was not in the image, or cannot be fingerprinted; false otherwise
+     */
+    boolean isCurrent(final Class<? extends IInfoPack> packType) {
+        Long stored = fingerprintsByPack.get(packType.getName());
+        long current = fingerprint(packType);
+        return stored == null || stored == 0 || current == 0 || stored == current;
+    }
+
+    public long getLastID() {
+        return this.lastID;
+    }
+
+    /**
+     * Gets the number of entities in the image.
+     * @return  the number of entities
+     */
+    public int getEntityCount() {
+        return entities.length;
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Writes the image to the passed file.
+     * 
+     * 
+     * Entities must be {@code Serializable} and their components must be {@link IStorableComponent storable}.
+     * @param path          the file to write
+     * @throws IOException  if the file cannot be written
+     */
+    public void write(final File path) throws IOException {
+        List<byte[]> chunks = new ArrayList<byte[]>();
+        for (int from = 0; from < entities.length; from += CHUNK) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(CHUNK * 64);
+            ObjectOutputStream out = new ObjectOutputStream(buffer);
+            for (int i = from; i < Math.min(entities.length, from + CHUNK); i++) {
+                out.writeObject(entities[i]);
+            }
+            out.close();
+            chunks.add(buffer.toByteArray());
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(lastID);
+            out.writeInt(entities.length);
+
+            out.writeInt(membersByPack.size());
+            for (Map.Entry<String, int[]> each : membersByPack.entrySet()) {
+                Long fingerprint = fingerprintsByPack.get(each.getKey());
+                out.writeUTF(each.getKey());
+                out.writeLong(fingerprint == null ? 0 : fingerprint);
+                out.writeInt(each.getValue().length);
+                for (int index : each.getValue()) {
+                    out.writeInt(index);
+                }
+            }
+
+            out.writeInt(chunks.size());
+            for (byte[] each : chunks) {
+                out.writeInt(each.length);
+            }
+            for (byte[] each : chunks) {
+                out.write(each);
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Maps the passed file and reads the image from it.
+     * 
+     * 
+     * The entities are read in chunks, in parallel.
+     * @param path          the file to read
+     * @return              the image
+     * @throws IOException  if the file cannot be read, is not an image, or is
+     *                      truncated or corrupt
+     */
+    public static StartupImage read(final File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        ExecutorService workers = null;
+
+        try {
+            if (file.length() > Integer.MAX_VALUE) {
+                throw new IOException("Startup image is too large to map: " + path);
+            }
+            ByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+
+            if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                throw new IOException("Not a startup image: " + path);
+            }
+
+            long lastID = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0) {
+                throw corrupt(path, "negative entity count " + count);
+            }
+            final IEntity[] entities = new IEntity[count];
+
+            DataInputStream in = new DataInputStream(new BufferInputStream(buffer));
+            int packs = in.readInt();
+            if (packs < 0) {
+                throw corrupt(path, "negative pack count " + packs);
+            }
+            Map<String, int[]> membersByPack = new LinkedHashMap<String, int[]>();
+            Map<String, Long> fingerprintsByPack = new LinkedHashMap<String, Long>();
+            for (int i = 0; i < packs; i++) {
+                String name = in.readUTF();
+                fingerprintsByPack.put(name, in.readLong());
+                int length = in.readInt();
+                if (length < 0 || length > buffer.remaining() / 4) {
+                    throw corrupt(path, "bad member count " + length + " for " + name);
+                }
+                int[] members = new int[length];
+                for (int j = 0; j < members.length; j++) {
+                    members[j] = in.readInt();
+                    if (members[j] < 0 || members[j] >= count) {
+                        throw corrupt(path, "member " + members[j] + " of " + name + " is not one of the " + count + " entities");
+                    }
+                }
+                membersByPack.put(name, members);
+            }
+
+            int chunks = in.readInt();
+            if (chunks != (count + CHUNK - 1) / CHUNK) {
+                throw corrupt(path, chunks + " chunks for " + count + " entities");
+            }
+            int[] lengths = new int[chunks];
+            long total = 0;
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] = in.readInt();
+                if (lengths[i] < 0) {
+                    throw corrupt(path, "negative chunk length " + lengths[i]);
+                }
+                total += lengths[i];
+            }
+            if (total > buffer.remaining()) {
+                throw corrupt(path, "chunks need " + total + " bytes but " + buffer.remaining() + " remain");
+            }
+
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(lengths.length);
+            int position = buffer.position();
+            for (int i = 0; i < lengths.length; i++) {
+                final ByteBuffer chunk = buffer.duplicate();
+                chunk.position(position);
+                chunk.limit(position + lengths[i]);
+                position += lengths[i];
+
+                final int from = i * CHUNK;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException, ClassNotFoundException {
+                        ObjectInputStream in = new ObjectInputStream(new BufferInputStream(chunk));
+                        for (int i = from; i < Math.min(entities.length, from + CHUNK); i++) {
+                            Object entity = in.readObject();
+                            if (!(entity instanceof IEntity)) {
+                                throw new IOException("Expected an entity but read " + entity);
+                            }
+                            entities[i] = (IEntity) entity;
+                        }
+                        return null;
+                    }
+                });
+            }
+
+            workers = Executors.newFixedThreadPool(Math.max(1, Math.min(tasks.size(), Runtime.getRuntime().availableProcessors())));
+            for (Future<Void> each : workers.invokeAll(tasks)) {
+                each.get();
+            }
+            return new StartupImage(entities, membersByPack, fingerprintsByPack, lastID);
+        }
+        catch (EOFException e) {
+            throw corrupt(path, "file ends early");
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Could not read startup image: " + path, e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading startup image: " + path, e);
+        }
+        finally {
+            if (workers != null) {
+                workers.shutdown();
+            }
+            file.close();
+        }
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    /**
+     * Fingerprints the class file of the pack, so a change to its requirements can be detected.
+     * @param packType  the type of pack
+     * @return  the CRC-32 of the class file; 0 if the class file cannot be read
+     */
+    static long fingerprint(final Class<? extends IInfoPack> packType) {
+        String name = packType.getName();
+        InputStream in = packType.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class");
+        if (in == null) {
+            return 0;
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[4096];
+        try {
+            try {
+                for (int read = in.read(bytes); read >= 0; read = in.read(bytes)) {
+                    crc.update(bytes, 0, read);
+                }
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            return 0;
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Creates the exception thrown for an image that cannot be trusted.
+     * @param path      the file being read
+     * @param reason    what is wrong with the file
+     * @return          the exception to throw
+     */
+    private static IOException corrupt(final File path, final String reason) {
+        return new IOException("Corrupt startup image, " + reason + ": " + path);
+    }
+
+    /**
+     * Reads straight from a mapped buffer, without copying it to the heap first.
+     */
+    private static class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        public BufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.jgefroh.core;
+
+
+/**
+ * A clock backed by {@code System.nanoTime()}.
+ */
+public class SystemClock implements IClock {
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,297 @@
+package com.jgefroh.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Holds the systems tracked by {@code Core}.
+ * 
+ * <p>
+ * The systems are kept in an array that is replaced, never modified, when
+ * systems are added or removed, so a tick can iterate it without being
+ * affected by changes. Changes requested during a tick are held until the
+ * tick ends and then applied in order, together with the {@code init()},
+ * {@code start()} and {@code stop()} calls they cause. Added systems are
+ * initialized and then started; removed systems are stopped.
+ * </p>
+ * 
+ * @see Core
+ */
+class SystemRegistry {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**Shared by registries without systems.*/
+    private static final ISystem[] NO_SYSTEMS = new ISystem[0];
+
+    /**Shared by registries without reactive systems.*/
+    private static final IReactiveSystem[] NO_REACTIVE_SYSTEMS = new IReactiveSystem[0];
+
+    /**The systems, in the order they are executed.*/
+    private ISystem[] systems = NO_SYSTEMS;
+
+    /**The systems that are notified of changes.*/
+    private IReactiveSystem[] reactiveSystems = NO_REACTIVE_SYSTEMS;
+
+    /**Holds the tracked systems, for identity checks.*/
+    private final Set<ISystem> tracked = Collections.newSetFromMap(new IdentityHashMap<ISystem, Boolean>());
+
+    /**Holds the first tracked system of each class.*/
+    private final Map<Class<?>, ISystem> systemsByType = new HashMap<Class<?>, ISystem>();
+
+    /**The changes waiting for the current tick to end.*/
+    private final List<Change> pending = new ArrayList<Change>();
+
+    /**FLAG: Indicates whether changes are held until the tick ends.*/
+    private boolean isDeferring;
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    /**
+     * Gets the systems in the order they are executed.
+     * @return  the current array of systems; must not be modified
+     */
+    ISystem[] getSystems() {
+        return this.systems;
+    }
+
+    /**
+     * Gets the systems that are notified of changes.
+     * @return  the current array of reactive systems; must not be modified
+     */
+    IReactiveSystem[] getReactiveSystems() {
+        return this.reactiveSystems;
+    }
+
+    /**
+     * Gets the first tracked system of the passed class.
+     * @param type  the exact class of the system
+     * @return      the system if found; null otherwise
+     */
+    ISystem get(final Class<?> type) {
+        return systemsByType.get(type);
+    }
+
+    /**
+     * Checks to see if the system is tracked.
+     * @param system    the system to check
+     * @return          true if the system is tracked; false otherwise
+     */
+    boolean contains(final ISystem system) {
+        return tracked.contains(system);
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Sets the flag that holds changes until the tick ends.
+     * 
+     * 
+     * Held changes are applied when the flag is cleared.
+     * @param isDeferring   true while a tick is running; false otherwise
+     */
+    void setDeferring(final boolean isDeferring) {
+        this.isDeferring = isDeferring;
+
+        if (!isDeferring) {
+            for (int i = 0; i < pending.size(); i++) {//Changes may queue more changes
+                Change change = pending.get(i);
+                apply(change.system, change.replacement, change.isRemoval);
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Adds, initializes and starts the system.
+     * @param system    the system to add
+     */
+    void add(final ISystem system) {
+        change(null, system, false);
+    }
+
+    /**
+     * Adds, initializes and starts the systems at once, without checking them.
+     * 
+     * 
+     * Used by {@link CoreBuilder}, which has already validated them, before the first tick.
+     * @param added the systems to add, in order
+     */
+    void addAll(final ISystem[] added) {
+        ISystem[] all = Arrays.copyOf(systems, systems.length + added.length);
+        System.arraycopy(added, 0, all, systems.length, added.length);
+        set(all);
+
+        for (ISystem each : added) {
+            each.init();
+            each.start();
+        }
+    }
+
+    /**
+     * Stops and removes the system.
+     * @param system    the system to remove
+     */
+    void remove(final ISystem system) {
+        change(system, null, true);
+    }
+
+    /**
+     * Stops and removes all systems.
+     */
+    void clear() {
+        change(null, null, true);
+    }
+
+    /**
+     * Replaces a system with another, keeping its position and schedule.
+     * @param system        the system to replace
+     * @param replacement   the system to take its place
+     */
+    void replace(final ISystem system, final ISystem replacement) {
+        change(system, replacement, false);
+    }
+
+    /**
+     * Applies the change now, or when the tick ends if a tick is running.
+     */
+    private void change(final ISystem system, final ISystem replacement, final boolean isRemoval) {
+        if (isDeferring) {
+            pending.add(new Change(system, replacement, isRemoval));
+        }
+        else {
+            apply(system, replacement, isRemoval);
+        }
+    }
+
+    /**
+     * Applies a change.
+     * @param system        the system to remove or replace; null to add or clear
+     * @param replacement   the system to add; null to remove
+     * @param isRemoval     true if the system is being removed; false otherwise
+     */
+    private void apply(final ISystem system, final ISystem replacement, final boolean isRemoval) {
+        if (isRemoval && system == null) {
+            ISystem[] removed = systems;
+            set(NO_SYSTEMS);
+            for (ISystem each : removed) {
+                each.stop();
+            }
+            return;
+        }
+
+        if (replacement != null && tracked.contains(replacement)) {
+            return;
+        }
+
+        if (system == null) {
+            ISystem[] added = Arrays.copyOf(systems, systems.length + 1);
+            added[systems.length] = replacement;
+            set(added);
+            replacement.init();
+            replacement.start();
+            return;
+        }
+
+        int index = indexOf(system);
+        if (index < 0) {
+            return;
+        }
+
+        if (isRemoval) {
+            ISystem[] removed = new ISystem[systems.length - 1];
+            System.arraycopy(systems, 0, removed, 0, index);
+            System.arraycopy(systems, index + 1, removed, index, removed.length - index);
+            set(removed);
+            system.stop();
+        }
+        else {
+            ISystem[] replaced = systems.clone();
+            replaced[index] = replacement;
+            replacement.setWait(system.getWait());
+            replacement.setLast(system.getLast());
+            set(replaced);
+            system.stop();
+            replacement.init();
+            replacement.start();
+        }
+    }
+
+    /**
+     * Finds the position of the system.
+     * @param system    the system to find
+     * @return          the position if found; -1 otherwise
+     */
+    private int indexOf(final ISystem system) {
+        for (int i = 0; i < systems.length; i++) {
+            if (systems[i] == system) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces the array of systems and rebuilds the lookups.
+     * @param updated   the new array of systems
+     */
+    private void set(final ISystem[] updated) {
+        List<IReactiveSystem> reactive = new ArrayList<IReactiveSystem>();
+        tracked.clear();
+        systemsByType.clear();
+
+        for (ISystem each : updated) {
+            tracked.add(each);
+            if (!systemsByType.containsKey(each.getClass())) {
+                systemsByType.put(each.getClass(), each);
+            }
+            if (each instanceof IReactiveSystem) {
+                reactive.add((IReactiveSystem) each);
+            }
+        }
+
+        this.systems = updated;
+        this.reactiveSystems = reactive.toArray(NO_REACTIVE_SYSTEMS);
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    /**
+     * A change held until the tick ends.
+     */
+    private static class Change {
+
+        /**The system to remove or replace; null to add or clear.*/
+        private final ISystem system;
+
+        /**The system to add; null to remove.*/
+        private final ISystem replacement;
+
+        /**True if the system is being removed.*/
+        private final boolean isRemoval;
+
+        public Change(final ISystem system, final ISystem replacement, final boolean isRemoval) {
+            this.system = system;
+            this.replacement = replacement;
+            this.isRemoval = isRemoval;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.jgefroh.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Runs a tick in three phases: ingest, simulate and publish.
+ * 
+ * <p>
+ * Ingest phases and {@code Core.work()} run on the calling thread. The
+ * declared components are then copied into one of two {@link Snapshot}s,
+ * which is published on a background thread while the caller goes on to
+ * simulate the next tick. A snapshot is only captured again once its
+ * previous publish has finished, so publishing tick N overlaps simulating
+ * tick N+1 but never falls more than one tick behind.
+ * </p>
+ * 
+ * @see ICopyableComponent
+ * @see IPublisher
+ */
+public class TickPipeline {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The Core being simulated.*/
+    private final Core core;
+
+    /**The phases run before the simulation.*/
+    private final List<ITickPhase> ingestPhases;
+
+    /**The types of component copied into the snapshots.*/
+    private final List<Class<? extends ICopyableComponent<?>>> snapshotTypes;
+
+    /**Publishes the snapshots.*/
+    private IPublisher publisher;
+
+    /**The two snapshots that take turns being captured and published.*/
+    private final Snapshot[] snapshots;
+
+    /**The publish in progress for each snapshot; null if none.*/
+    private final Future<?>[] publishes;
+
+    /**Runs the publishes.*/
+    private final ExecutorService executor;
+
+    /**The number of ticks run.*/
+    private long tick;
+
+    /**Logger for debug purposes.*/
+    private final Logger LOGGER = LoggerFactory.getLogger(this.getClass(), Level.INFO);
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    /**
+     * Constructor to instantiate a pipeline for the passed Core.
+     * @param core  the Core to simulate
+     */
+    public TickPipeline(final Core core) {
+        this.core = core;
+        this.ingestPhases = new ArrayList<ITickPhase>();
+        this.snapshotTypes = new ArrayList<Class<? extends ICopyableComponent<?>>>();
+        this.snapshots = new Snapshot[] {new Snapshot(), new Snapshot()};
+        this.publishes = new Future<?>[2];
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(runnable, "TickPipeline-publish");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Adds a phase that runs before the simulation.
+     * @param phase the phase to run
+     */
+    public void addIngestPhase(final ITickPhase phase) {
+        ingestPhases.add(phase);
+    }
+
+    /**
+     * Declares a component type to be copied into the snapshots.
+     * @param type  the type of component
+     */
+    public void addSnapshotType(final Class<? extends ICopyableComponent<?>> type) {
+        if (!snapshotTypes.contains(type)) {
+            snapshotTypes.add(type);
+        }
+    }
+
+    /**
+     * Sets what publishes the snapshots.
+     * @param publisher the publisher; null to skip publishing
+     */
+    public void setPublisher(final IPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Runs a single tick.
+     * 
+     * 
+     * Returns once the tick has been simulated and its publish has been started.
+     */
+    public void tick() {
+        for (ITickPhase each : ingestPhases) {
+            each.run(core);
+        }
+
+        core.work();
+
+        if (publisher == null) {
+            return;
+        }
+
+        int index = (int) (tick++ & 1);
+        await(index);
+
+        final Snapshot snapshot = snapshots[index];
+        snapshot.capture(core, snapshotTypes, tick);
+
+        final IPublisher publisher = this.publisher;
+        publishes[index] = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                publisher.publish(snapshot);
+            }
+        });
+    }
+
+    /**
+     * Waits for all publishes to finish, then stops the publishing thread.
+     */
+    public void close() {
+        await(0);
+        await(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for the publish of the snapshot to finish.
+     * @param index the snapshot to wait for
+     */
+    private void await(final int index) {
+        Future<?> publish = publishes[index];
+        if (publish == null) {
+            return;
+        }
+
+        try {
+            publish.get();
+        }
+        catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Publish failed.", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publishes[index] = null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.jgefroh.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Assigns each class a small, dense index the first time it is seen.
+ * 
+ * <p>
+ * Indices are stored with {@code ClassValue}, so the registry does not keep
+ * classes from being unloaded. Indices are never reused.
+ * </p>
+ */
+public final class TypeRegistry {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**The registry used to index component types.*/
+    public static final TypeRegistry COMPONENTS = new TypeRegistry();
+
+    /**The registry used to index message types.*/
+    public static final TypeRegistry MESSAGES = new TypeRegistry();
+
+    /**The next index to assign.*/
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**Holds the index assigned to each class.*/
+    private final ClassValue<Integer> indices = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(final Class<?> type) {
+            return next.getAndIncrement();
+        }
+    };
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Gets the index of the passed type, assigning one if needed.
+     * @param type  the type to index
+     * @return      the index of the type
+     */
+    public int indexOf(final Class<?> type) {
+        return indices.get(type);
+    }
+
+    /**
+     * Gets the number of indices assigned so far.
+     * @return  the number of indexed types
+     */
+    public int size() {
+        return next.get();
+    }
+}
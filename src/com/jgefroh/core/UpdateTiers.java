@@ -0,0 +1,446 @@
+package com.jgefroh.core;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Holds the update tier of every entity and which entities are due each tick.
+ * 
+ * <p>
+ * A tier with divisor {@code d} splits its entities evenly over {@code d}
+ * buckets, and one bucket is due per tick, so each entity is due every
+ * {@code d} ticks and the load is the same every tick. Entities are placed
+ * in the smallest bucket of their tier, so the buckets stay even as entities
+ * come, go and change tiers. Due times are kept per bucket rather than per
+ * entity, so starting a tick costs one step per tier. Tier changes are held
+ * until the next tick starts.
+ * </p>
+ * 
+ * @see Core#setRelevanceFunction(IRelevanceFunction)
+ */
+class UpdateTiers {
+
+    //////////////////////////////////////////////////
+    // Fields
+    //////////////////////////////////////////////////
+
+    /**Decides the tier of each entity.*/
+    private final IRelevanceFunction function;
+
+    /**The number of ticks between updates in each tier.*/
+    private final int[] divisors;
+
+    /**The buckets of each tier.*/
+    private final Bucket[][] buckets;
+
+    /**The bucket of each tier to start looking for the smallest from, so ties are spread out.*/
+    private final int[] nextBucket;
+
+    /**Holds the placement of each entity.*/
+    private final Map<IEntity, Slot> slots;
+
+    /**Every entity, for round-robin re-evaluation.*/
+    private IEntity[] all;
+
+    /**The number of entities.*/
+    private int size;
+
+    /**The position of the next entity to re-evaluate.*/
+    private int cursor;
+
+    /**Holds the tier changes waiting for the next tick, in the order they were made.*/
+    private final Map<IEntity, Integer> pending;
+
+    /**The current tick.*/
+    private long tick;
+
+    /**The time the current tick started, in ms.*/
+    private long now;
+
+    /**The number of entities due this tick.*/
+    private int dueCount;
+
+    /**The number of times the buckets changed, so iterators can detect changes.*/
+    private int modCount;
+
+
+    //////////////////////////////////////////////////
+    // Constructor
+    //////////////////////////////////////////////////
+
+    UpdateTiers(final IRelevanceFunction function, final int[] divisors, final long now) {
+        this.function = function;
+        this.divisors = divisors.clone();
+        this.buckets = new Bucket[divisors.length][];
+        this.nextBucket = new int[divisors.length];
+        this.slots = new IdentityHashMap<IEntity, Slot>();
+        this.pending = new LinkedHashMap<IEntity, Integer>();
+        this.all = new IEntity[16];
+        this.now = now;
+
+        for (int i = 0; i < divisors.length; i++) {
+            buckets[i] = new Bucket[divisors[i]];
+            for (int j = 0; j < divisors[i]; j++) {
+                buckets[i][j] = new Bucket(now);
+            }
+        }
+    }
+
+
+    //////////////////////////////////////////////////
+    // Getters
+    //////////////////////////////////////////////////
+
+    IRelevanceFunction getFunction() {
+        return this.function;
+    }
+
+    /**
+     * Gets the tier of the entity.
+     * @return  the tier; -1 if the entity is not tracked
+     */
+    int getTier(final IEntity entity) {
+        Slot slot = slots.get(entity);
+        return slot == null ? -1 : slot.tier;
+    }
+
+    /**
+     * Checks to see if the entity is due this tick.
+     * @return  true if due or not tracked; false otherwise
+     */
+    boolean isDue(final IEntity entity) {
+        Slot slot = slots.get(entity);
+        return slot == null || slot.bucket.dueTick == tick;
+    }
+
+    /**
+     * Gets the time since the entity was last due.
+     * @return  the time, in ms
+     */
+    long getDelta(final IEntity entity) {
+        Slot slot = slots.get(entity);
+        if (slot == null) {
+            return 0;
+        }
+        Bucket bucket = slot.bucket;
+        long end = bucket.dueTick == tick ? bucket.lastDue : now;
+        long start = bucket.dueTick == tick ? bucket.previousDue : bucket.lastDue;
+        return end - Math.max(start, slot.since);
+    }
+
+
+    //////////////////////////////////////////////////
+    // Methods
+    //////////////////////////////////////////////////
+
+    /**
+     * Starts tracking the entity in the tier the relevance function gives it.
+     */
+    void add(final IEntity entity) {
+        if (slots.containsKey(entity)) {
+            return;
+        }
+        modCount++;
+        Slot slot = new Slot();
+        slot.since = now;
+        slot.position = size;
+        slots.put(entity, slot);
+
+        if (size == all.length) {
+            all = Arrays.copyOf(all, size * 2);
+        }
+        all[size++] = entity;
+        place(entity, slot, clamp(function.getTier(entity)));
+    }
+
+    /**
+     * Stops tracking the entity.
+     */
+    void remove(final IEntity entity) {
+        Slot slot = slots.remove(entity);
+        if (slot == null) {
+            return;
+        }
+        modCount++;
+        pending.remove(entity);
+        slot.bucket.remove(slot.index, slots);
+
+        IEntity last = all[--size];
+        all[slot.position] = last;
+        all[size] = null;
+        if (last != entity) {
+            slots.get(last).position = slot.position;
+        }
+    }
+
+    /**
+     * Moves the entity to the passed tier when the next tick starts.
+     */
+    void setTier(final IEntity entity, final int tier) {
+        if (slots.containsKey(entity)) {
+            pending.put(entity, clamp(tier));
+        }
+    }
+
+    /**
+     * Starts a tick: applies tier changes, re-evaluates a batch of entities and marks the due buckets.
+     * @param now       the current time, in ms
+     * @param budget    the number of entities to re-evaluate
+     */
+    void beginTick(final long now, final int budget) {
+        int count = Math.min(budget, size);
+        for (int i = 0; i < count; i++) {
+            if (cursor >= size) {
+                cursor = 0;
+            }
+            IEntity entity = all[cursor++];
+            int tier = clamp(function.getTier(entity));
+            if (tier != slots.get(entity).tier) {
+                pending.put(entity, tier);
+            }
+        }
+
+        for (Map.Entry<IEntity, Integer> each : pending.entrySet()) {
+            Slot slot = slots.get(each.getKey());
+            if (slot.tier != each.getValue()) {
+                modCount++;
+                Bucket previous = slot.bucket;
+                slot.since = Math.max(slot.since, previous.lastDue);
+                previous.remove(slot.index, slots);
+                place(each.getKey(), slot, each.getValue());
+            }
+        }
+        pending.clear();
+
+        this.tick++;
+        this.now = now;
+        this.dueCount = 0;
+
+        for (int i = 0; i < divisors.length; i++) {
+            Bucket bucket = buckets[i][(int) (tick % divisors[i])];
+            bucket.previousDue = bucket.lastDue;
+            bucket.lastDue = now;
+            bucket.dueTick = tick;
+            dueCount += bucket.size;
+        }
+    }
+
+    /**
+     * Gets the entities due this tick that are in the passed set.
+     * @param members   the entities to choose from
+     * @return          an iterator with the due members
+     */
+    Iterator<IEntity> getDue(final Set<IEntity> members) {
+        if (members.size() < dueCount) {
+            return new MemberIterator(members.iterator());
+        }
+        return new BucketIterator(members);
+    }
+
+    /**
+     * Places the entity in the smallest bucket of the tier.
+     */
+    private void place(final IEntity entity, final Slot slot, final int tier) {
+        Bucket[] tierBuckets = buckets[tier];
+        int index = nextBucket[tier];
+        for (int i = 1; i < tierBuckets.length; i++) {
+            int candidate = (nextBucket[tier] + i) % tierBuckets.length;
+            if (tierBuckets[candidate].size < tierBuckets[index].size) {
+                index = candidate;
+            }
+        }
+        nextBucket[tier] = (index + 1) % tierBuckets.length;
+
+        slot.tier = tier;
+        slot.bucket = buckets[tier][index];
+        slot.index = slot.bucket.add(entity);
+    }
+
+    private int clamp(final int tier) {
+        return Math.max(0, Math.min(divisors.length - 1, tier));
+    }
+
+
+    //////////////////////////////////////////////////
+    // Helpers
+    //////////////////////////////////////////////////
+
+    /**
+     * The entities of a tier that are due on the same ticks.
+     */
+    private static class Bucket {
+
+        private IEntity[] entities = new IEntity[16];
+
+        private int size;
+
+        /**The tick the bucket was last due.*/
+        private long dueTick;
+
+        /**The time the bucket was last due, in ms.*/
+        private long lastDue;
+
+        /**The time the bucket was due before that, in ms.*/
+        private long previousDue;
+
+        public Bucket(final long now) {
+            this.lastDue = now;
+            this.previousDue = now;
+            this.dueTick = -1;
+        }
+
+        int add(final IEntity entity) {
+            if (size == entities.length) {
+                entities = Arrays.copyOf(entities, size * 2);
+            }
+            entities[size] = entity;
+            return size++;
+        }
+
+        void remove(final int index, final Map<IEntity, Slot> slots) {
+            IEntity last = entities[--size];
+            entities[index] = last;
+            entities[size] = null;
+
+            Slot moved = slots.get(last);
+            if (moved != null && index < size) {
+                moved.index = index;
+            }
+        }
+    }
+
+    /**
+     * The placement of an entity.
+     */
+    private static class Slot {
+
+        private int tier;
+
+        private Bucket bucket;
+
+        /**The position in the bucket.*/
+        private int index;
+
+        /**The position in the round-robin array.*/
+        private int position;
+
+        /**The time the entity joined its bucket, in ms, if after the bucket was last due.*/
+        private long since;
+    }
+
+    /**
+     * Walks a set and keeps the due entities.
+     */
+    private class MemberIterator implements Iterator<IEntity> {
+
+        private final Iterator<IEntity> members;
+
+        private IEntity next;
+
+        public MemberIterator(final Iterator<IEntity> members) {
+            this.members = members;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (members.hasNext()) {
+                IEntity each = members.next();
+                if (isDue(each)) {
+                    next = each;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public IEntity next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            IEntity result = next;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Walks the due buckets and keeps the entities in a set; like the
+     * iterators of the pack sets, fails fast if entities are added, removed
+     * or moved while it is in use.
+     */
+    private class BucketIterator implements Iterator<IEntity> {
+
+        private final Set<IEntity> members;
+
+        /**The number of bucket changes when the iterator was created.*/
+        private final int expectedModCount = modCount;
+
+        private int tier;
+
+        private int index;
+
+        private IEntity next;
+
+        public BucketIterator(final Set<IEntity> members) {
+            this.members = members;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (tier < divisors.length) {
+                Bucket bucket = buckets[tier][(int) (tick % divisors[tier])];
+                while (index < bucket.size) {
+                    IEntity each = bucket.entities[index++];
+                    if (members.contains(each)) {
+                        next = each;
+                        return;
+                    }
+                }
+                tier++;
+                index = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public IEntity next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            IEntity result = next;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}